@@ -14,6 +14,12 @@ public class FlexListLayout extends GuiElement {
 	private final ArrayList<GuiElement> children = new ArrayList<>();
 	@Nullable
 	private Layoutable1D[] childLayouts;
+	/**
+	 * Constraints combined from all children, until a child changes.
+	 */
+	@Nullable
+	private Vec2 cachedMinSize, cachedMaxSize, cachedWeight;
+	private boolean positionsDirty = true;
 
 	public FlexListLayout(Vec2.Direction direction) {
 		this.direction = direction;
@@ -43,19 +49,27 @@ public class FlexListLayout extends GuiElement {
 	@Override
 	public void invalidateLayout() {
 		super.invalidateLayout();
-		childLayouts = null;
+		cachedMinSize = null;
+		cachedMaxSize = null;
+		cachedWeight = null;
 	}
 
 	@Override
 	public void updateSize(Vec2 sizeAvail) {
-		childLayouts = new Layoutable1D[children.size()];
+		if (!needsLayout(sizeAvail)) return;
+		if (childLayouts == null || childLayouts.length != children.size()) {
+			childLayouts = new Layoutable1D[children.size()];
+			for (int i = 0; i < childLayouts.length; i++) {
+				childLayouts[i] = new Layoutable1D(0, 0, 0);
+			}
+		}
 		for (int i = 0; i < childLayouts.length; i++) {
 			GuiElement child = children.get(i);
 			Vec2 minSize = child.getMinSize();
 			Vec2 maxSize = child.getMaxSize();
 			Vec2 weight = child.getWeight();
 
-			childLayouts[i] = new Layoutable1D(
+			childLayouts[i].reset(
 					minSize.getDim(direction),
 					maxSize.getDim(direction),
 					weight.getDim(direction));
@@ -79,6 +93,8 @@ public class FlexListLayout extends GuiElement {
 		}
 
 		super.updateSize(Vec2.setDims(mainSize, otherSize, direction));
+		positionsDirty = true;
+		markLaidOut(sizeAvail);
 	}
 
 	@Override
@@ -86,6 +102,7 @@ public class FlexListLayout extends GuiElement {
 		if (childLayouts == null || childLayouts.length != children.size()) {
 			throw new IllegalStateException("setPos() was called before setSize()");
 		}
+		if (!positionsDirty && pos.equals(getPos())) return;
 		super.setPos(pos);
 		final int other = pos.getDim(direction.other());
 		for (int i = 0; i < children.size(); i++) {
@@ -93,11 +110,13 @@ public class FlexListLayout extends GuiElement {
 			int main = childLayouts[i].pos + pos.getDim(direction);
 			child.setPos(Vec2.setDims(main, other, direction));
 		}
+		positionsDirty = false;
 	}
 
 	@NotNull
 	@Override
 	public Vec2 getWeight() {
+		if (cachedWeight != null) return cachedWeight;
 		int sumMain = 0;
 		int maxOther = 0;
 		for (GuiElement child : children) {
@@ -105,11 +124,12 @@ public class FlexListLayout extends GuiElement {
 			sumMain += weight.getDim(direction);
 			maxOther = Math.max(maxOther, weight.getDim(direction.other()));
 		}
-		return Vec2.setDims(sumMain, maxOther, direction);
+		return cachedWeight = Vec2.setDims(sumMain, maxOther, direction);
 	}
 
 	@Override
 	public Vec2 getMaxSize() {
+		if (cachedMaxSize != null) return cachedMaxSize;
 		int sumMain = 0;
 		int maxOther = 0;
 		for (GuiElement child : children) {
@@ -117,11 +137,12 @@ public class FlexListLayout extends GuiElement {
 			sumMain += maxSize.getDim(direction);
 			maxOther = Math.max(maxOther, maxSize.getDim(direction.other()));
 		}
-		return Vec2.setDims(sumMain, maxOther, direction);
+		return cachedMaxSize = Vec2.setDims(sumMain, maxOther, direction);
 	}
 
 	@Override
 	public Vec2 getMinSize() {
+		if (cachedMinSize != null) return cachedMinSize;
 		int sumMain = 0;
 		int maxOther = 0;
 		for (GuiElement child : children) {
@@ -129,7 +150,7 @@ public class FlexListLayout extends GuiElement {
 			sumMain += minSize.getDim(direction);
 			maxOther = Math.max(maxOther, minSize.getDim(direction.other()));
 		}
-		return Vec2.setDims(sumMain, maxOther, direction);
+		return cachedMinSize = Vec2.setDims(sumMain, maxOther, direction);
 	}
 
 	@Override
@@ -25,6 +25,12 @@ public abstract class GuiElement implements GuiParent {
 	@Nullable
 	private Vec2 maxSize;
 	private boolean dirtyConstraints = true;
+	/**
+	 * Set when this element or one of its descendants changed, see {@link #needsLayout}.
+	 */
+	private boolean dirtyLayout = true;
+	@Nullable
+	private Vec2 laidOutSizeAvail;
 
 	public void setParent(@Nullable GuiParent parent) {
 		if (parent != this.parent) {
@@ -39,9 +45,26 @@ public abstract class GuiElement implements GuiParent {
 	 */
 	@Override
 	public void invalidateLayout() {
+		dirtyLayout = true;
 		if (parent != null) parent.invalidateLayout();
 	}
 
+	/**
+	 * Containers can skip laying out their subtree again if nothing in it changed
+	 * and they get the same space as last time.
+	 */
+	protected boolean needsLayout(Vec2 sizeAvail) {
+		return dirtyLayout || !sizeAvail.equals(laidOutSizeAvail);
+	}
+
+	/**
+	 * Call at the end of {@link #updateSize}, see {@link #needsLayout}.
+	 */
+	protected void markLaidOut(Vec2 sizeAvail) {
+		dirtyLayout = false;
+		laidOutSizeAvail = sizeAvail;
+	}
+
 	@NotNull
 	public Vec2 getPos() {
 		return pos;
@@ -1,12 +1,13 @@
 package io.github.gjum.mc.gui;
 
-import java.util.*;
-import java.util.stream.Collectors;
-
 class Layoutable1D {
 	int minSize, maxSize, weight;
 	int size = 0;
 	int pos = 0;
+	/**
+	 * Scratch state of {@link #computeLayout}.
+	 */
+	private boolean flexible = false;
 
 	Layoutable1D(int minSize, int maxSize, int weight) {
 		this.minSize = minSize;
@@ -24,46 +25,55 @@ class Layoutable1D {
 		return weight;
 	}
 
+	/**
+	 * Like creating a new instance, for reusing arrays of cells across layouts.
+	 */
+	void reset(int minSize, int maxSize, int weight) {
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.weight = weight;
+	}
+
 	/**
 	 * @param available Pixels available for distribution among cells.
 	 * @param cells     Layout constraints; the output sizes will be written into these.
 	 * @return Used pixels (distributed to cells). May be less than `available` when the sum of all children maxWidth's is too small.
 	 */
 	public static int computeLayout(int available, Layoutable1D[] cells) {
-		final ArrayList<Layoutable1D> flex = new ArrayList<>();
+		// runs for every container on every layout, so this doesn't allocate; `flexible` marks the cells still growing
 		int distributable = available;
 		int totalWeights = 0;
+		int flexCount = 0;
 		for (Layoutable1D cell : cells) {
 			cell.size = cell.minSize;
 			distributable -= cell.minSize;
-			final int weight = cell.weight;
-			if (weight > 0 && cell.size < cell.maxSize) {
-				// flexible, assign later
-				totalWeights += weight;
-				flex.add(cell);
+			// flexible, assign later
+			cell.flexible = cell.weight > 0 && cell.size < cell.maxSize;
+			if (cell.flexible) {
+				totalWeights += cell.weight;
+				flexCount++;
 			}
 		}
 
-		while (distributable > 0) {
-			int prevFlexSize = flex.size();
-			final ArrayList<Layoutable1D> currentFlex = new ArrayList<>(flex);
-			flex.clear();
-
+		while (distributable > 0 && flexCount > 0) {
 			final int currentWeights = totalWeights;
 			totalWeights = 0;
+			flexCount = 0;
 
 			int currentDistributable = distributable;
 
-			for (Layoutable1D cell : currentFlex) {
+			for (Layoutable1D cell : cells) {
+				if (!cell.flexible) continue;
 				final int oldSize = cell.size;
 				// since we use integer rounding here, the last few pixels need manual distribution, see below
 				int newSize = oldSize + distributable * cell.weight / currentWeights;
 				if (newSize < cell.maxSize) {
 					// still flexible, assign later
 					totalWeights += cell.weight;
-					flex.add(cell);
+					flexCount++;
 				} else {
 					newSize = cell.maxSize;
+					cell.flexible = false;
 				}
 				cell.size = newSize;
 				currentDistributable -= newSize - oldSize;
@@ -77,17 +87,18 @@ class Layoutable1D {
 			distributable = currentDistributable;
 		}
 
-		// Distribute the last few pixels, this is < flex.size() and only occurs
+		// Distribute the last few pixels, fewer than there are flexible cells; this only occurs
 		// because we use integer rounding while distributing.
-		final List<Layoutable1D> cellsByWeight = flex.stream()
-				.sorted(Comparator.comparing(Layoutable1D::getWeight)
-						.reversed()) // distribute to most-weight cells first
-				.collect(Collectors.toList());
-		for (Layoutable1D cell : cellsByWeight) {
-			if (distributable > 0) {
-				cell.size += 1;
-				distributable -= 1;
+		// Most-weight cells first, in order of appearance among equal weights.
+		while (distributable > 0) {
+			Layoutable1D heaviest = null;
+			for (Layoutable1D cell : cells) {
+				if (cell.flexible && (heaviest == null || cell.weight > heaviest.weight)) heaviest = cell;
 			}
+			if (heaviest == null) break;
+			heaviest.size += 1;
+			heaviest.flexible = false;
+			distributable -= 1;
 		}
 
 		// practically the same as returning available,
@@ -3,6 +3,7 @@ package io.github.gjum.mc.gui;
 //? if <1.21.6
 /*import com.mojang.blaze3d.systems.RenderSystem;*/
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.Color;
 
@@ -20,6 +21,13 @@ public class ScrollBox extends GuiElement {
 	private @NotNull GuiElement child;
 	private Vec2 scrollOffset = new Vec2(0, 0);
 
+	private @Nullable Runnable nearEndHandler;
+	private int nearEndDistance = 0;
+	/**
+	 * Child height when the near-end handler last ran, so it runs only once until the child grows.
+	 */
+	private int nearEndChildHeight = -1;
+
 	private static Button dummyButton = new Button.Builder(Component.nullToEmpty(""), (b) -> {
 	}).size(0, 0).build();
 
@@ -42,6 +50,23 @@ public class ScrollBox extends GuiElement {
 		return this;
 	}
 
+	/**
+	 * Call the handler when scrolled to within `distance` pixels of the child's end, e.g. to load more content.
+	 * Runs once per child height, and right away if the child doesn't fill the box.
+	 */
+	public ScrollBox onNearEnd(int distance, @Nullable Runnable handler) {
+		nearEndDistance = distance;
+		nearEndHandler = handler;
+		nearEndChildHeight = -1;
+		return this;
+	}
+
+	public ScrollBox scrollToTop() {
+		scrollOffset = new Vec2(scrollOffset.x, 0);
+		clipScroll();
+		return this;
+	}
+
 	@Override
 	public void setPos(@NotNull Vec2 pos) {
 		super.setPos(pos);
@@ -183,6 +208,13 @@ public class ScrollBox extends GuiElement {
 		if (scrollOffset.y > 0) {
 			scrollOffset = new Vec2(scrollOffset.x, 0);
 		}
+		if (nearEndHandler != null && child.getSize().y != nearEndChildHeight) {
+			final int remaining = child.getSize().y - getInnerHeight() + scrollOffset.y;
+			if (remaining <= nearEndDistance) {
+				nearEndChildHeight = child.getSize().y;
+				nearEndHandler.run();
+			}
+		}
 		try {
 			child.setPos(new Vec2(getPos().x + scrollOffset.x, getPos().y + scrollOffset.y));
 		} catch (Throwable ignored) {
@@ -16,6 +16,12 @@ public class TableLayout extends GuiElement {
 	private Layoutable1D[] rowLayouts;
 	@Nullable
 	private Layoutable1D[] colLayouts;
+	/**
+	 * Constraints combined from all cells, until a cell changes.
+	 */
+	@Nullable
+	private Vec2 cachedMinSize, cachedMaxSize, cachedWeight;
+	private boolean positionsDirty = true;
 
 	// TODO spacing between cells (horizontal and vertical)
 	// TODO cell alignment per row/col (left/center/right, top/center/bottom)
@@ -77,20 +83,30 @@ public class TableLayout extends GuiElement {
 	@Override
 	public void invalidateLayout() {
 		super.invalidateLayout();
-		rowLayouts = null;
-		colLayouts = null;
+		cachedMinSize = null;
+		cachedMaxSize = null;
+		cachedWeight = null;
+	}
+
+	private static Layoutable1D[] resetLayouts(@Nullable Layoutable1D[] layouts, int length) {
+		if (layouts == null || layouts.length != length) {
+			layouts = new Layoutable1D[length];
+			for (int i = 0; i < length; i++) {
+				layouts[i] = new Layoutable1D(0, 0, 0);
+			}
+		} else {
+			for (Layoutable1D layout : layouts) {
+				layout.reset(0, 0, 0);
+			}
+		}
+		return layouts;
 	}
 
 	@Override
 	public void updateSize(Vec2 sizeAvail) {
-		rowLayouts = new Layoutable1D[rows.size()];
-		for (int i = 0; i < rowLayouts.length; i++) {
-			rowLayouts[i] = new Layoutable1D(0, 0, 0);
-		}
-		colLayouts = new Layoutable1D[maxCols];
-		for (int i = 0; i < colLayouts.length; i++) {
-			colLayouts[i] = new Layoutable1D(0, 0, 0);
-		}
+		if (!needsLayout(sizeAvail)) return;
+		rowLayouts = resetLayouts(rowLayouts, rows.size());
+		colLayouts = resetLayouts(colLayouts, maxCols);
 		for (int rowNr = 0; rowNr < rows.size(); rowNr++) {
 			List<GuiElement> row = rows.get(rowNr);
 			for (int colNr = 0; colNr < row.size(); colNr++) {
@@ -131,6 +147,8 @@ public class TableLayout extends GuiElement {
 						weight.y > 0 ? rowLayouts[rowNr].size : minSize.y));
 			}
 		}
+		positionsDirty = true;
+		markLaidOut(sizeAvail);
 	}
 
 	@Override
@@ -139,6 +157,7 @@ public class TableLayout extends GuiElement {
 				|| colLayouts == null || colLayouts.length != maxCols) {
 			throw new IllegalStateException("setPos() was called before setSize()");
 		}
+		if (!positionsDirty && pos.equals(getPos())) return;
 		super.setPos(pos);
 		for (int rowNr = 0; rowNr < rows.size(); rowNr++) {
 			List<GuiElement> row = rows.get(rowNr);
@@ -150,6 +169,7 @@ public class TableLayout extends GuiElement {
 				child.setPos(new Vec2(x, y));
 			}
 		}
+		positionsDirty = false;
 	}
 
 	@Override
@@ -182,6 +202,7 @@ public class TableLayout extends GuiElement {
 	@NotNull
 	@Override
 	public Vec2 getWeight() {
+		if (cachedWeight != null) return cachedWeight;
 		int maxX = 0;
 		int sumY = 0;
 		for (List<GuiElement> row : rows) {
@@ -196,11 +217,12 @@ public class TableLayout extends GuiElement {
 			maxX = Math.max(maxX, sumX);
 			sumY += maxY;
 		}
-		return new Vec2(maxX, sumY);
+		return cachedWeight = new Vec2(maxX, sumY);
 	}
 
 	@Override
 	public Vec2 getMaxSize() {
+		if (cachedMaxSize != null) return cachedMaxSize;
 		int maxW = 0;
 		int sumH = 0;
 		for (List<GuiElement> row : rows) {
@@ -215,11 +237,12 @@ public class TableLayout extends GuiElement {
 			maxW = Math.max(maxW, sumW);
 			sumH += maxH;
 		}
-		return new Vec2(maxW, sumH);
+		return cachedMaxSize = new Vec2(maxW, sumH);
 	}
 
 	@Override
 	public Vec2 getMinSize() {
+		if (cachedMinSize != null) return cachedMinSize;
 		int maxW = 0;
 		int sumH = 0;
 		for (List<GuiElement> row : rows) {
@@ -234,7 +257,7 @@ public class TableLayout extends GuiElement {
 			maxW = Math.max(maxW, sumW);
 			sumH += maxH;
 		}
-		return new Vec2(maxW, sumH);
+		return cachedMinSize = new Vec2(maxW, sumH);
 	}
 
 	@Override
@@ -0,0 +1,464 @@
+package io.github.gjum.mc.gui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import net.minecraft.client.gui.GuiGraphics;
+
+import static io.github.gjum.mc.gui.Layoutable1D.computeLayout;
+
+/**
+ * Vertical list of table rows for many items, meant to be put in a {@link ScrollBox}.
+ * Rows are only built, laid out, drawn and given input events while they are on screen.
+ * Rows not built yet count with an estimated height, which is replaced by their actual height once built.
+ * Like in {@link TableLayout}, cells in the same column are aligned;
+ * column widths are fitted to the rows built so far, and only grow.
+ */
+public class VirtualList<T> extends GuiElement {
+	/**
+	 * Rows this far (in pixels) outside the screen are kept, so scrolling back and forth doesn't rebuild them.
+	 */
+	private static final int KEEP_DISTANCE = 200;
+
+	private final Function<T, List<@Nullable GuiElement>> rowBuilder;
+	private final int estimatedRowHeight;
+	private final int rowSpacing;
+	private final ArrayList<T> items = new ArrayList<>();
+	/**
+	 * Measured height of each item's row (without spacing), or -1 if never built.
+	 */
+	private int[] rowHeights = new int[16];
+	/**
+	 * Top of each item's row, relative to the list. One more entry than items, for the total height.
+	 */
+	private int[] rowOffsets = new int[17];
+	private boolean dirtyOffsets = true;
+	private final HashMap<Integer, List<@Nullable GuiElement>> builtRows = new HashMap<>();
+	/**
+	 * Constraints of all rows built so far, per column.
+	 */
+	private final ArrayList<Layoutable1D> colConstraints = new ArrayList<>();
+	/**
+	 * Set through {@link #setColumnWeight}, kept when the rows are cleared.
+	 */
+	private int[] columnWeights = new int[0];
+	private Layoutable1D[] colLayouts = new Layoutable1D[0];
+	private boolean dirtyColumns = true;
+	/**
+	 * Set when a cell's size may have changed, so built rows get measured again.
+	 */
+	private boolean dirtyRows = false;
+	private int availableWidth = 0;
+	/**
+	 * Items on screen during the last draw; only these receive mouse events.
+	 */
+	private int firstVisible = 0;
+	private int endVisible = 0;
+
+	/**
+	 * @param estimatedRowHeight used for rows that were not built yet
+	 * @param rowSpacing         pixels of empty space above each row
+	 * @param rowBuilder         called when the item's row comes into view. Returns the row's cells, which may be null for empty cells.
+	 */
+	public VirtualList(int estimatedRowHeight, int rowSpacing, @NotNull Function<T, List<@Nullable GuiElement>> rowBuilder) {
+		this.estimatedRowHeight = estimatedRowHeight;
+		this.rowSpacing = rowSpacing;
+		this.rowBuilder = rowBuilder;
+		setWeight(new Vec2(1, 0));
+	}
+
+	/**
+	 * Let the column take a share of the width left over after fitting all cells, like cells with a weight in {@link TableLayout}.
+	 */
+	public VirtualList<T> setColumnWeight(int colNr, int weight) {
+		if (columnWeights.length <= colNr) columnWeights = Arrays.copyOf(columnWeights, colNr + 1);
+		columnWeights[colNr] = weight;
+		applyColumnWeight(colNr);
+		dirtyColumns = true;
+		invalidateLayout();
+		return this;
+	}
+
+	private void applyColumnWeight(int colNr) {
+		while (colConstraints.size() <= colNr) colConstraints.add(new Layoutable1D(0, 0, 0));
+		colConstraints.get(colNr).update(0, Vec2.LARGE, columnWeights[colNr]);
+	}
+
+	int getColumnWeight(int colNr) {
+		return colNr < colConstraints.size() ? colConstraints.get(colNr).weight : 0;
+	}
+
+	public VirtualList<T> addItems(@NotNull Collection<? extends T> newItems) {
+		final int start = items.size();
+		items.addAll(newItems);
+		if (rowHeights.length < items.size()) {
+			int capacity = Math.max(items.size(), rowHeights.length * 2);
+			rowHeights = Arrays.copyOf(rowHeights, capacity);
+			rowOffsets = Arrays.copyOf(rowOffsets, capacity + 1);
+		}
+		Arrays.fill(rowHeights, start, items.size(), -1);
+		dirtyOffsets = true;
+		invalidateLayout();
+		return this;
+	}
+
+	public VirtualList<T> clear() {
+		handleDestroyed();
+		builtRows.clear();
+		items.clear();
+		colConstraints.clear();
+		for (int colNr = 0; colNr < columnWeights.length; colNr++) {
+			if (columnWeights[colNr] > 0) applyColumnWeight(colNr);
+		}
+		dirtyColumns = true;
+		dirtyOffsets = true;
+		firstVisible = endVisible = 0;
+		invalidateLayout();
+		return this;
+	}
+
+	public int getItemCount() {
+		return items.size();
+	}
+
+	private int getTotalHeight() {
+		updateOffsets();
+		return rowOffsets[items.size()];
+	}
+
+	private void updateOffsets() {
+		if (!dirtyOffsets) return;
+		int y = 0;
+		for (int i = 0; i < items.size(); i++) {
+			rowOffsets[i] = y;
+			y += rowSpacing + (rowHeights[i] < 0 ? estimatedRowHeight : rowHeights[i]);
+		}
+		rowOffsets[items.size()] = y;
+		dirtyOffsets = false;
+	}
+
+	/**
+	 * @return index of the item whose row (including spacing) contains this y offset
+	 */
+	private int findItemAt(int y) {
+		updateOffsets();
+		int lo = 0;
+		int hi = items.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (rowOffsets[mid + 1] <= y) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private void updateColumns() {
+		if (!dirtyColumns) return;
+		colLayouts = new Layoutable1D[colConstraints.size()];
+		for (int i = 0; i < colLayouts.length; i++) {
+			var constraint = colConstraints.get(i);
+			colLayouts[i] = new Layoutable1D(constraint.minSize, constraint.maxSize, constraint.weight);
+		}
+		computeLayout(availableWidth, colLayouts);
+		int colPos = 0;
+		for (Layoutable1D colLayout : colLayouts) {
+			colLayout.pos = colPos;
+			colPos += colLayout.size;
+		}
+		dirtyColumns = false;
+		for (var row : builtRows.entrySet()) {
+			layoutRow(row.getKey(), row.getValue());
+		}
+	}
+
+	private List<@Nullable GuiElement> buildRow(int index) {
+		final List<@Nullable GuiElement> row = rowBuilder.apply(items.get(index));
+		for (int colNr = 0; colNr < row.size(); colNr++) {
+			GuiElement cell = row.get(colNr);
+			if (cell == null) continue;
+			cell.setParent(this);
+			if (colConstraints.size() <= colNr) colConstraints.add(new Layoutable1D(0, 0, 0));
+			var constraint = colConstraints.get(colNr);
+			final Vec2 minSize = cell.getMinSize();
+			final Vec2 maxSize = cell.getMaxSize();
+			final int weight = cell.getWeight().x;
+			if (minSize.x > constraint.minSize || maxSize.x > constraint.maxSize || weight > constraint.weight) {
+				constraint.update(minSize.x, maxSize.x, weight);
+				dirtyColumns = true;
+			}
+		}
+		builtRows.put(index, row);
+		return row;
+	}
+
+	/**
+	 * Size the row's cells to the columns and remember its height.
+	 */
+	private void layoutRow(int index, List<@Nullable GuiElement> row) {
+		int height = 0;
+		for (int colNr = 0; colNr < row.size(); colNr++) {
+			GuiElement cell = row.get(colNr);
+			if (cell == null) continue;
+			final int colWidth = colNr < colLayouts.length ? colLayouts[colNr].size : 0;
+			final Vec2 minSize = cell.getMinSize();
+			cell.updateSize(new Vec2(cell.getWeight().x > 0 ? colWidth : minSize.x, minSize.y));
+			height = Math.max(height, cell.getSize().y);
+		}
+		if (rowHeights[index] != height) {
+			rowHeights[index] = height;
+			dirtyOffsets = true;
+		}
+	}
+
+	private void positionRow(int index, List<@Nullable GuiElement> row) {
+		final int y = getPos().y + rowOffsets[index] + rowSpacing;
+		for (int colNr = 0; colNr < row.size(); colNr++) {
+			GuiElement cell = row.get(colNr);
+			if (cell == null) continue;
+			final int x = colNr < colLayouts.length ? colLayouts[colNr].pos : 0;
+			cell.setPos(new Vec2(getPos().x + x, y));
+		}
+	}
+
+	/**
+	 * Build the rows within the screen, and drop those far outside it.
+	 */
+	private void updateVisibleRows(Vec2 winSize) {
+		final int top = -getPos().y;
+		final int bottom = winSize.y - getPos().y;
+		final int totalHeightBefore = getTotalHeight();
+		int first = findItemAt(Math.max(0, top));
+		// rows may turn out taller or shorter than estimated, changing which rows are on screen; repeat until stable
+		for (int pass = 0; pass < 3; pass++) {
+			boolean built = false;
+			for (int i = first; i < items.size() && rowOffsets[i] < bottom; i++) {
+				if (builtRows.containsKey(i)) continue;
+				layoutRow(i, buildRow(i));
+				built = true;
+			}
+			if (!built) break;
+			updateColumns();
+			updateOffsets();
+			first = findItemAt(Math.max(0, top));
+		}
+		int end = first;
+		while (end < items.size() && rowOffsets[end] < bottom) end++;
+		firstVisible = first;
+		endVisible = end;
+
+		final int keepFirst = findItemAt(Math.max(0, top - KEEP_DISTANCE));
+		final int keepEnd = Math.min(items.size(), findItemAt(bottom + KEEP_DISTANCE) + 1);
+		Iterator<Map.Entry<Integer, List<@Nullable GuiElement>>> it = builtRows.entrySet().iterator();
+		while (it.hasNext()) {
+			var row = it.next();
+			if (row.getKey() >= keepFirst && row.getKey() < keepEnd) {
+				positionRow(row.getKey(), row.getValue());
+				continue;
+			}
+			for (GuiElement cell : row.getValue()) {
+				if (cell != null) cell.handleDestroyed();
+			}
+			it.remove();
+		}
+
+		if (getTotalHeight() != totalHeightBefore) invalidateLayout();
+	}
+
+	@Override
+	public void invalidateLayout() {
+		super.invalidateLayout();
+		dirtyRows = true;
+	}
+
+	@Override
+	public void updateSize(Vec2 sizeAvail) {
+		if (sizeAvail.x != availableWidth) {
+			availableWidth = sizeAvail.x;
+			dirtyColumns = true;
+		}
+		if (dirtyRows && !dirtyColumns) {
+			for (var row : builtRows.entrySet()) {
+				layoutRow(row.getKey(), row.getValue());
+			}
+		}
+		dirtyRows = false;
+		updateColumns();
+		updateOffsets();
+		super.updateSize(sizeAvail);
+	}
+
+	@Override
+	public void setPos(@NotNull Vec2 pos) {
+		super.setPos(pos);
+		updateOffsets();
+		for (var row : builtRows.entrySet()) {
+			positionRow(row.getKey(), row.getValue());
+		}
+	}
+
+	@Override
+	public Vec2 getMinSize() {
+		int minWidth = 0;
+		for (var constraint : colConstraints) minWidth += constraint.minSize;
+		return new Vec2(minWidth, getTotalHeight());
+	}
+
+	@Override
+	public Vec2 getMaxSize() {
+		// grows as more items are added, don't let the parent cap it at the current height
+		return new Vec2(Vec2.LARGE, Vec2.LARGE);
+	}
+
+	@Override
+	public void draw(GuiGraphics context, Vec2 mouse, Vec2 winSize, float partialTicks) {
+		updateVisibleRows(winSize);
+		for (int i = firstVisible; i < endVisible; i++) {
+			var row = builtRows.get(i);
+			if (row == null) continue;
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					cell.draw(context, mouse, winSize, partialTicks);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean drawOverlays(GuiGraphics context, Vec2 mouse, Vec2 winSize, float partialTicks) {
+		for (int i = firstVisible; i < endVisible; i++) {
+			var row = builtRows.get(i);
+			if (row == null) continue;
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					if (cell.drawOverlays(context, mouse, winSize, partialTicks)) {
+						return true;
+					}
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean handleMouseClicked(Vec2 mouse, int mouseButton) {
+		var clicked = false;
+		for (var row : builtRows.values()) {
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					// must call all cells so text fields de-focus
+					clicked = cell.handleMouseClicked(mouse, mouseButton) || clicked;
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return clicked;
+	}
+
+	@Override
+	public void handleMouseDragged(Vec2 mouse, Vec2 prevMouse, Vec2 dragStart, int mouseButton) {
+		for (int i = firstVisible; i < endVisible; i++) {
+			var row = builtRows.get(i);
+			if (row == null) continue;
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					cell.handleMouseDragged(mouse, prevMouse, dragStart, mouseButton);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void handleMouseReleased(Vec2 mouse, Vec2 dragStart, int state) {
+		for (var row : builtRows.values()) {
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					cell.handleMouseReleased(mouse, dragStart, state);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean handleMouseScrolled(Vec2 mouse, double scrollAmount) {
+		for (int i = firstVisible; i < endVisible; i++) {
+			var row = builtRows.get(i);
+			if (row == null) continue;
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					if (cell.handleMouseScrolled(mouse, scrollAmount)) {
+						return true;
+					}
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void handleKeyPressed(int keyCode, int scanCode, int mods) {
+		for (var row : builtRows.values()) {
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					cell.handleKeyPressed(keyCode, scanCode, mods);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void handleCharTyped(char keyChar, int keyCode) {
+		for (var row : builtRows.values()) {
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					cell.handleCharTyped(keyChar, keyCode);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void handleDestroyed() {
+		for (var row : builtRows.values()) {
+			for (GuiElement cell : row) {
+				if (cell == null) continue;
+				try {
+					cell.handleDestroyed();
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+}
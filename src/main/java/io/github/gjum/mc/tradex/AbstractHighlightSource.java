@@ -0,0 +1,98 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Pos;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Listeners, version counter, cached snapshot and suppressed positions shared by all highlight sources.
+ * Subclasses call the `fire...` methods whenever their highlighted positions change.
+ */
+public abstract class AbstractHighlightSource implements HighlightSource {
+	private final ArrayList<Listener> listeners = new ArrayList<>();
+	private int version = 0;
+	private @Nullable List<Pos> snapshot;
+	/**
+	 * Keyed by {@link Pos#key()}.
+	 */
+	protected final LongOpenHashSet suppressedPositions = new LongOpenHashSet();
+
+	/**
+	 * Add all currently highlighted positions, for {@link #getSnapshot()}.
+	 */
+	protected abstract void collectActivePositions(@NotNull List<Pos> out);
+
+	@Override
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public boolean isSuppressed(Pos pos) {
+		return suppressedPositions.contains(pos.key());
+	}
+
+	@Override
+	public int getVersion() {
+		return version;
+	}
+
+	@Override
+	public Collection<Pos> getSnapshot() {
+		if (snapshot == null) {
+			var positions = new ArrayList<Pos>();
+			collectActivePositions(positions);
+			snapshot = Collections.unmodifiableList(positions);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return the snapshot if there is no filter, otherwise a new collection of the matching positions
+	 */
+	protected Collection<Pos> getSnapshot(@Nullable Predicate<Pos> extraFilter) {
+		if (extraFilter == null) return getSnapshot();
+		var result = new ArrayList<Pos>();
+		for (Pos pos : getSnapshot()) {
+			if (extraFilter.test(pos)) result.add(pos);
+		}
+		return result;
+	}
+
+	private void changed() {
+		version++;
+		snapshot = null;
+	}
+
+	protected void fireAdded(@NotNull Pos pos) {
+		changed();
+		for (int i = 0; i < listeners.size(); i++) listeners.get(i).onHighlightAdded(this, pos);
+	}
+
+	protected void fireRemoved(@NotNull Pos pos) {
+		changed();
+		for (int i = 0; i < listeners.size(); i++) listeners.get(i).onHighlightRemoved(this, pos);
+	}
+
+	protected void fireUpdated(@NotNull Pos pos) {
+		changed();
+		for (int i = 0; i < listeners.size(); i++) listeners.get(i).onHighlightUpdated(this, pos);
+	}
+
+	protected void fireReset() {
+		changed();
+		for (int i = 0; i < listeners.size(); i++) listeners.get(i).onHighlightsReset(this);
+	}
+}
@@ -0,0 +1,153 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.api.Exchanges;
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Highlights the exchanges of a search result, until it is an hour old.
+ * Does NOT support distance/time-based automatic purging.
+ */
+public abstract class AbstractSearchResultSource extends AbstractHighlightSource {
+	private static final long TTL_MS = 3600_000L; // 1 hour
+
+	protected @Nullable Exchanges.SearchResult searchResult;
+	/**
+	 * Exchanges of `searchResult` by position, the first one per container.
+	 */
+	protected final SpatialIndex<Exchange> index = new SpatialIndex<>();
+	private final ArrayList<Exchange> scratch = new ArrayList<>();
+
+	@Override
+	public Collection<Pos> getActivePositions(Pos playerPos, long now, @Nullable Predicate<Pos> extraFilter) {
+		if (!isActive(now)) {
+			return new ArrayList<>();
+		}
+		return getSnapshot(extraFilter);
+	}
+
+	@Override
+	protected void collectActivePositions(@NotNull List<Pos> out) {
+		scratch.clear();
+		index.collectAll(scratch);
+		for (var exchange : scratch) {
+			if (!suppressedPositions.contains(exchange.pos.key())) out.add(exchange.pos);
+		}
+		scratch.clear();
+	}
+
+	@Override
+	public void tick(Pos playerPos, long now) {
+		isActive(now); // expire by TTL
+	}
+
+	@Override
+	public void collectPositionsWithin(Pos center, int range, long now, List<Pos> out) {
+		scratch.clear();
+		collectExchangesWithin(center, range, now, scratch);
+		for (var exchange : scratch) out.add(exchange.pos);
+		scratch.clear();
+	}
+
+	/**
+	 * Collects unsuppressed exchanges within range of a center block, one per container.
+	 * See {@link #collectPositionsWithin}.
+	 */
+	public void collectExchangesWithin(Pos center, int range, long now, List<Exchange> out) {
+		if (!isActive(now)) return;
+		int start = out.size();
+		index.collectWithin(center, range, out);
+		if (suppressedPositions.isEmpty()) return;
+		// drop suppressed exchanges in place
+		int kept = start;
+		for (int i = start; i < out.size(); i++) {
+			var exchange = out.get(i);
+			if (!suppressedPositions.contains(exchange.pos.key())) out.set(kept++, exchange);
+		}
+		out.subList(kept, out.size()).clear();
+	}
+
+	private boolean isActive(long now) {
+		if (searchResult == null) return false;
+		// Check result TTL (1 hour)
+		if (now - searchResult.ts > TTL_MS) {
+			searchResult = null;
+			index.clear();
+			fireReset();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void markSuppressed(Pos pos) {
+		if (suppressedPositions.add(pos.key()) && index.get(pos) != null) fireRemoved(pos);
+	}
+
+	@Override
+	public void unsuppress(Pos pos) {
+		if (suppressedPositions.remove(pos.key()) && index.get(pos) != null) fireAdded(pos);
+	}
+
+	@Override
+	public void reset() {
+		searchResult = null;
+		suppressedPositions.clear();
+		index.clear();
+		fireReset();
+	}
+
+	@Override
+	public boolean supportsAutoPurging() {
+		return false;
+	}
+
+	/**
+	 * Set the search result for this source.
+	 * @param result the search result to set
+	 */
+	public void setSearchResult(@Nullable Exchanges.SearchResult result) {
+		this.searchResult = result;
+		index.clear();
+		if (result != null) {
+			for (var exchange : result.exchanges) {
+				if (exchange != null && exchange.pos != null) index.putIfAbsent(exchange.pos, exchange);
+			}
+		}
+		fireReset();
+	}
+
+	/**
+	 * Get the current search result.
+	 * @return the current search result, or null if none
+	 */
+	@Nullable
+	public Exchanges.SearchResult getSearchResult() {
+		return searchResult;
+	}
+
+	/**
+	 * Get the exchange at a specific position from current search result.
+	 * @param pos the position to look up
+	 * @return the exchange at that position, or null if not found
+	 */
+	@Nullable
+	public Exchange getExchangeAt(Pos pos) {
+		if (searchResult == null || searchResult.exchanges.isEmpty()) {
+			return null;
+		}
+		for (var exchange : searchResult.exchanges) {
+			if (pos.equals(exchange.pos)) {
+				return exchange;
+			}
+		}
+		return null;
+	}
+}
@@ -9,7 +9,6 @@ import net.minecraft.network.chat.TextColor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,17 +32,42 @@ public class ChatHandler {
 	protected static final Pattern transferPattern = Pattern.compile("^Successful +(exchange|donation)s?!?$", Pattern.CASE_INSENSITIVE);
 	protected static final Pattern locationPattern = Pattern.compile("Location: ([-0-9]+) ([-0-9]+) ([-0-9]+)");
 
+	private static final TextColor YELLOW = namedColor("yellow");
+	private static final TextColor GOLD = namedColor("gold");
+	private static final TextColor AQUA = namedColor("aqua");
+	private static final TextColor DARK_AQUA = namedColor("dark_aqua");
+	private static final TextColor RED = namedColor("red");
+	private static final TextColor GREEN = namedColor("green");
+	private static final TextColor DARK_PURPLE = namedColor("dark_purple");
+
+	// reused for every line, to not allocate on every chat message
+	private final Matcher presentMatcher = presentPattern.matcher("");
+	private final Matcher availableMatcher = availablePattern.matcher("");
+	private final Matcher inputMatcher = inputPattern.matcher("");
+	private final Matcher outputMatcher = outputPattern.matcher("");
+	private final Matcher enchantMatcher = enchantPattern.matcher("");
+	private final Matcher conditionMatcher = conditionPattern.matcher("");
+	private final Matcher repairLevelMatcher = repairLevelPattern.matcher("");
+	private final Matcher potionMatcher = potionPattern.matcher("");
+	private final Matcher bookGenMatcher = bookGenPattern.matcher("");
+	private final Matcher authorMatcher = authorPattern.matcher("");
+	private final Matcher transferMatcher = transferPattern.matcher("");
+	private final Matcher locationMatcher = locationPattern.matcher("");
+
 	public @Nullable Exchange parsingExchange;
 	private @Nullable Exchange lastExchange;
 	private boolean currentlyParsingInput;
 	private final InfoProvider mod;
 
 	public interface InfoProvider {
+		/**
+		 * @return the other block of the double chest at this position, or null if it is not a double chest
+		 */
+		@Nullable Pos getOtherChestHalf(@NotNull Pos pos);
 
-		@NotNull String getCurrentServerName();
-
-		@NotNull String getCurrentWorldName();
-
+		/**
+		 * The exchange is not changed after this, later updates (e.g. of its stock) are handed out as new exchanges.
+		 */
 		void handleExchangeFromChat(Exchange exchange);
 
 		void sendTabComplete(int id);
@@ -53,32 +77,64 @@ public class ChatHandler {
 		this.mod = mod;
 	}
 
-	public void handeChat(Component chat) {
-		final String msg = chat.getString();
+	/**
+	 * Every line the exchange plugin sends has a fixed color, so the color decides which patterns can match at all.
+	 * Outside an exchange, only the yellow "exchanges present" header is of interest;
+	 * all other chat is dropped without looking at its text.
+	 * @param server where the line was received, read on the client thread, as the world may have changed since
+	 * @param world see server
+	 */
+	public void handeChat(Component chat, @NotNull String server, @NotNull String world) {
 		var firstColor = getFirstColor(chat);
 
-		Matcher presentMatcher = presentPattern.matcher(msg);
-		if (presentMatcher.matches() && isColor(firstColor, "yellow")) {
-			final Integer index = intOrNull(presentMatcher.group(1));
-			final Integer multi = intOrNull(presentMatcher.group(2));
-			if (index != null) {
-				parsingExchange = new Exchange();
-				parsingExchange.time = System.currentTimeMillis();
-				parsingExchange.index = index; // 1-based
-				if (multi != null) {
-					parsingExchange.multi = multi;
-				}
-				mod.sendTabComplete(-3);
-			}
+		if (parsingExchange == null) {
+			if (YELLOW.equals(firstColor)) handlePresent(chat.getString());
 			return;
 		}
 
-		if (parsingExchange == null) {
-			return;
+		if (YELLOW.equals(firstColor)) {
+			final String msg = chat.getString();
+			if (handlePresent(msg)) return;
+			if (handleInputOutput(msg)) return;
+			if (handleAvailable(msg)) return;
+		} else if (firstColor != null) {
+			final Rule rule = currentlyParsingInput
+					? parsingExchange.input
+					: parsingExchange.output;
+			if (rule != null && handleRuleDetail(chat.getString(), firstColor, rule)) {
+				rule.invalidate();
+				return;
+			}
 		}
 
-		Matcher inputMatcher = inputPattern.matcher(msg);
-		if (inputMatcher.matches() && isColor(firstColor, "yellow")) {
+		if (handleLocation(chat, server, world)) return;
+
+		if (GREEN.equals(firstColor) && lastExchange != null) {
+			handleTransfer(chat.getString());
+		}
+	}
+
+	private boolean handlePresent(@NotNull String msg) {
+		if (msg.isEmpty()) return false;
+		char first = msg.charAt(0);
+		if (first != '(' && (first < '0' || first > '9')) return false;
+		if (!presentMatcher.reset(msg).matches()) return false;
+		final Integer index = intOrNull(presentMatcher.group(1));
+		final Integer multi = intOrNull(presentMatcher.group(2));
+		if (index != null) {
+			parsingExchange = new Exchange();
+			parsingExchange.time = System.currentTimeMillis();
+			parsingExchange.index = index; // 1-based
+			if (multi != null) {
+				parsingExchange.multi = multi;
+			}
+			mod.sendTabComplete(-3);
+		}
+		return true;
+	}
+
+	private boolean handleInputOutput(@NotNull String msg) {
+		if (msg.startsWith("Input:") && inputMatcher.reset(msg).matches()) {
 			currentlyParsingInput = true;
 			final Integer count = intOrNull(inputMatcher.group(1));
 			final String material = inputMatcher.group(2);
@@ -89,10 +145,9 @@ public class ChatHandler {
 				parsingExchange.input = new Rule(count, material);
 				parsingExchange.input.customName = customName;
 			}
-			return;
+			return true;
 		}
-		Matcher outputMatcher = outputPattern.matcher(msg);
-		if (outputMatcher.matches() && isColor(firstColor, "yellow")) {
+		if (msg.startsWith("Output:") && outputMatcher.reset(msg).matches()) {
 			currentlyParsingInput = false;
 			final Integer count = intOrNull(outputMatcher.group(1));
 			final String material = outputMatcher.group(2);
@@ -103,112 +158,108 @@ public class ChatHandler {
 				parsingExchange.output = new Rule(count, material);
 				parsingExchange.output.customName = customName;
 			}
-			return;
+			return true;
 		}
+		return false;
+	}
 
-		final Rule rule = currentlyParsingInput
-				? parsingExchange.input
-				: parsingExchange.output;
-		if (rule != null) {
-			Matcher conditionMatcher = conditionPattern.matcher(msg);
-			if (conditionMatcher.matches() && isColor(firstColor, "gold")) {
+	private boolean handleRuleDetail(@NotNull String msg, @NotNull TextColor color, @NotNull Rule rule) {
+		if (GOLD.equals(color)) {
+			if (conditionMatcher.reset(msg).matches()) {
 				rule.condition = conditionMatcher.group(1);
-				return;
+				return true;
 			}
-			Matcher repairLevelMatcher = repairLevelPattern.matcher(msg);
-			if (repairLevelMatcher.matches() && isColor(firstColor, "gold")) {
+			if (repairLevelMatcher.reset(msg).matches()) {
 				int num = Integer.parseInt(repairLevelMatcher.group(1));
 				// num -= 2;
 				if (repairLevelMatcher.group(2) != null) {
 					num = -num; // "or less"
 				}
 				rule.repairLevel = num;
-				return;
+				return true;
 			}
-			if ("Never repaired".equals(msg) && isColor(firstColor, "gold")) {
+			if ("Never repaired".equals(msg)) {
 				rule.repairLevel = 0;
-				return;
+				return true;
 			}
-			Matcher potionMatcher = potionPattern.matcher(msg);
-			if (potionMatcher.matches() && isColor(firstColor, "aqua")) {
+		} else if (AQUA.equals(color)) {
+			if (potionMatcher.reset(msg).matches()) {
 				rule.potionName = potionMatcher.group(1);
-				return;
+				return true;
 			}
-			Matcher authorMatcher = authorPattern.matcher(msg);
-			if (authorMatcher.matches() && isColor(firstColor, "dark_aqua")) {
+			if (enchantMatcher.reset(msg).matches()) {
+				var enchant = enchantMatcher.group(1);
+				var levelStr = nonNullOr(enchantMatcher.group(2), "0");
+				int level = "%".equals(levelStr) ? 0 : Integer.parseInt(levelStr);
+				rule.requiredEnchants.put(enchant, level);
+				return true;
+			}
+		} else if (DARK_AQUA.equals(color)) {
+			if (authorMatcher.reset(msg).matches()) {
 				rule.bookAuthor = authorMatcher.group(1);
-				return;
+				return true;
 			}
-			Matcher bookGenMatcher = bookGenPattern.matcher(msg);
-			if (bookGenMatcher.matches() && isColor(firstColor, "dark_aqua")) {
+			if (bookGenMatcher.reset(msg).matches()) {
 				rule.bookGeneration = bookGenMatcher.group(1);
-				return;
+				return true;
 			}
-			Matcher enchantMatcher = enchantPattern.matcher(msg);
-			if (enchantMatcher.matches()) {
-				if (isColor(firstColor, "aqua")) {
-					var enchant = enchantMatcher.group(1);
-					var levelStr = nonNullOr(enchantMatcher.group(2), "0");
-					int level = "%".equals(levelStr) ? 0 : Integer.parseInt(levelStr);
-					rule.requiredEnchants.put(enchant, level);
-					return;
-				}
-				if (msg.startsWith("!") && isColor(firstColor, "red")) {
-					var enchant = enchantMatcher.group(1);
-					rule.excludedEnchants.add(enchant);
-					return;
-				}
+		} else if (RED.equals(color)) {
+			if (msg.startsWith("!") && enchantMatcher.reset(msg).matches()) {
+				rule.excludedEnchants.add(enchantMatcher.group(1));
+				return true;
 			}
-			if ("Other enchantments allowed".equals(msg) && isColor(firstColor, "green")) {
+		} else if (GREEN.equals(color)) {
+			if ("Other enchantments allowed".equals(msg)) {
 				rule.unlistedEnchantsAllowed = true;
-				return;
-			}
-			if (isColor(firstColor, "dark_purple")) {
-				rule.lore.add(msg);
-				return;
+				return true;
 			}
+		} else if (DARK_PURPLE.equals(color)) {
+			rule.lore.add(msg);
+			return true;
 		}
+		return false;
+	}
 
-		Matcher availableMatcher = availablePattern.matcher(msg);
-		if (availableMatcher.matches() && isColor(firstColor, "yellow")) {
-			final Integer available = intOrNull(availableMatcher.group(1));
-			if (available != null) {
-				parsingExchange.stock = available;
-			}
-			return;
+	private boolean handleAvailable(@NotNull String msg) {
+		if (!availableMatcher.reset(msg).matches()) return false;
+		final Integer available = intOrNull(availableMatcher.group(1));
+		if (available != null) {
+			parsingExchange.stock = available;
 		}
+		return true;
+	}
 
+	private boolean handleLocation(@NotNull Component chat, @NotNull String server, @NotNull String world) {
 		var hover = getHoverText(chat);
-		if (hover != null && hover.getString().startsWith("Location: ")) {
-			var locationMatcher = locationPattern.matcher(hover.getString());
-			if (locationMatcher.matches()) {
-				// TODO handle double chests. See `Exchange.adjacent`
-				parsingExchange.pos = new Pos(
-						mod.getCurrentServerName(),
-						mod.getCurrentWorldName(),
-						Integer.parseInt(locationMatcher.group(1)),
-						Integer.parseInt(locationMatcher.group(2)),
-						Integer.parseInt(locationMatcher.group(3))
-				);
-
-				try {
-					mod.handleExchangeFromChat(parsingExchange);
-				} catch (Throwable err) {
-					err.printStackTrace();
-				}
-				// mark completed
-				lastExchange = parsingExchange;
-				parsingExchange = null;
-				return;
-			}
-		}
+		if (hover == null) return false;
+		var hoverText = hover.getString();
+		if (!hoverText.startsWith("Location: ")) return false;
+		if (!locationMatcher.reset(hoverText).matches()) return false;
+		var clicked = new Pos(
+				server,
+				world,
+				Integer.parseInt(locationMatcher.group(1)),
+				Integer.parseInt(locationMatcher.group(2)),
+				Integer.parseInt(locationMatcher.group(3))
+		);
+		parsingExchange.setContainer(clicked, mod.getOtherChestHalf(clicked));
 
-		Matcher transferMatcher = transferPattern.matcher(msg);
-		if (lastExchange != null && transferMatcher.matches() && isColor(firstColor, "green")) {
-			if ("exchange".equals(transferMatcher.group(1))) lastExchange.stock--;
-			mod.handleExchangeFromChat(lastExchange);
-			return;
+		try {
+			mod.handleExchangeFromChat(parsingExchange);
+		} catch (Throwable err) {
+			err.printStackTrace();
 		}
+		// mark completed
+		lastExchange = parsingExchange;
+		parsingExchange = null;
+		return true;
+	}
+
+	private void handleTransfer(@NotNull String msg) {
+		if (msg.isEmpty() || (msg.charAt(0) != 'S' && msg.charAt(0) != 's')) return;
+		if (!transferMatcher.reset(msg).matches()) return;
+		if ("exchange".equals(transferMatcher.group(1))) lastExchange = lastExchange.withStock(lastExchange.stock - 1);
+		mod.handleExchangeFromChat(lastExchange);
 	}
 
 	private @Nullable Component getHoverText(@NotNull Component chat) {
@@ -231,7 +282,7 @@ public class ChatHandler {
 		return getFirstColor(chat.getSiblings().getFirst());
 	}
 
-	private static boolean isColor(TextColor color, String name) {
-		return Objects.equals(color, TextColor.parseColor(name).getOrThrow());
+	private static @NotNull TextColor namedColor(@NotNull String name) {
+		return TextColor.parseColor(name).getOrThrow();
 	}
 }
@@ -0,0 +1,270 @@
+package io.github.gjum.mc.tradex;
+
+import com.google.gson.JsonParseException;
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.github.gjum.mc.tradex.TradexMod.LOG;
+import static io.github.gjum.mc.tradex.api.Api.gson;
+
+/**
+ * Local on-disk index of every exchange seen in chat, keyed by position and exchange index.
+ * Backed by an append-only JSON lines file. Superseded lines are compacted away in the background.
+ * All file access happens on a single IO thread; the in-memory index is safe to read from any thread.
+ */
+public class ExchangeStore {
+	public static final Path DEFAULT_PATH = Path.of("tradex", "exchanges.jsonl");
+	/**
+	 * Where exchanges were logged before the store existed (only if the user created the file).
+	 * Imported once when the store file does not exist yet.
+	 */
+	private static final Path LEGACY_LOG_PATH = Path.of("exchanges-log.jsonl");
+	/**
+	 * Compact once the file holds this many times more lines than live entries.
+	 */
+	private static final int COMPACT_RATIO = 2;
+	/**
+	 * Small files are cheap to load, don't bother compacting them.
+	 */
+	private static final int COMPACT_MIN_LINES = 1000;
+
+	private final Path path;
+	private final HashMap<Key, Exchange> exchanges = new HashMap<>();
+	private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+	private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+		var thread = new Thread(r, "Tradex-ExchangeStore");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// only accessed on the IO thread
+	private @Nullable BufferedWriter writer;
+	private int fileLines = 0;
+
+	public record Key(@NotNull Pos pos, int index) {
+		public static Key of(@NotNull Exchange exchange) {
+			return new Key(exchange.pos, exchange.index);
+		}
+	}
+
+	public ExchangeStore() {
+		this(DEFAULT_PATH);
+	}
+
+	public ExchangeStore(@NotNull Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Start loading the file in the background. See {@link #whenLoaded()}.
+	 */
+	public CompletableFuture<Void> open() {
+		io.execute(() -> {
+			try {
+				load();
+				loaded.complete(null);
+			} catch (Throwable err) {
+				LOG.warn("Failed loading exchange store " + path, err);
+				loaded.completeExceptionally(err);
+			}
+		});
+		return loaded;
+	}
+
+	public CompletableFuture<Void> whenLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Record a newly seen exchange. Replaces any older exchange at the same position and index,
+	 * and for double chests, any exchange stored under the other half.
+	 * <p>
+	 * The exchange is serialized on the calling thread, so the io thread never reads an object that is also in use elsewhere.
+	 */
+	public void put(@NotNull Exchange exchange) {
+		if (exchange.pos == null) return;
+		final String line = gson.toJson(exchange);
+		synchronized (exchanges) {
+			exchanges.put(Key.of(exchange), exchange);
+			removeOtherHalf(exchange);
+		}
+		io.execute(() -> append(line));
+	}
+
+	public @Nullable Exchange get(@NotNull Pos pos, int index) {
+		synchronized (exchanges) {
+			return exchanges.get(new Key(pos, index));
+		}
+	}
+
+	public int size() {
+		synchronized (exchanges) {
+			return exchanges.size();
+		}
+	}
+
+	/**
+	 * @return snapshot of all stored exchanges
+	 */
+	public @NotNull List<Exchange> getAll() {
+		synchronized (exchanges) {
+			return new ArrayList<>(exchanges.values());
+		}
+	}
+
+	/**
+	 * @return snapshot of all stored exchanges on that server
+	 */
+	public @NotNull List<Exchange> getAll(@NotNull String server) {
+		var result = new ArrayList<Exchange>();
+		synchronized (exchanges) {
+			for (var exchange : exchanges.values()) {
+				if (server.equals(exchange.pos.server)) result.add(exchange);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return completes once all previously submitted writes reached the disk
+	 */
+	public CompletableFuture<Void> flush() {
+		return CompletableFuture.runAsync(() -> {}, io);
+	}
+
+	/**
+	 * Rewrite the file with only the live entries.
+	 */
+	public CompletableFuture<Void> compact() {
+		return CompletableFuture.runAsync(this::compactNow, io);
+	}
+
+	private void load() throws IOException {
+		Path source = path;
+		if (!Files.exists(path)) {
+			if (!Files.exists(LEGACY_LOG_PATH)) return;
+			LOG.info("Importing " + LEGACY_LOG_PATH + " into " + path);
+			source = LEGACY_LOG_PATH;
+		}
+		long start = System.currentTimeMillis();
+		int lines = 0;
+		int skipped = 0;
+		try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) continue;
+				lines++;
+				final Exchange exchange;
+				try {
+					exchange = gson.fromJson(line, Exchange.class);
+				} catch (JsonParseException e) {
+					skipped++;
+					continue;
+				}
+				if (exchange == null || exchange.pos == null || exchange.input == null) {
+					skipped++;
+					continue;
+				}
+				exchange.fixNulls();
+				synchronized (exchanges) {
+					// later lines win, unless a newer exchange was put while loading
+					var key = Key.of(exchange);
+					var existing = exchanges.get(key);
+					if (existing == null || existing.time <= exchange.time) {
+						exchanges.put(key, exchange);
+					}
+				}
+			}
+		}
+		synchronized (exchanges) {
+			// older lines may be stored under the other half of a double chest that was explored again since
+			for (var exchange : new ArrayList<>(exchanges.values())) {
+				if (exchanges.get(Key.of(exchange)) == exchange) removeOtherHalf(exchange);
+			}
+		}
+		fileLines = source == path ? lines : 0;
+		LOG.info("Loaded %d exchanges from %d lines (%d skipped) in %dms".formatted(
+				size(), lines, skipped, System.currentTimeMillis() - start));
+		if (source != path || needsCompaction()) compactNow();
+	}
+
+	/**
+	 * Caller must hold the lock on `exchanges`.
+	 */
+	private void removeOtherHalf(@NotNull Exchange exchange) {
+		var adjacentPos = exchange.getAdjacentPos();
+		if (adjacentPos == null) return;
+		int count = exchange.containerSize();
+		for (int index = 1; index <= count; index++) {
+			exchanges.remove(new Key(adjacentPos, index));
+		}
+	}
+
+	private void append(String line) {
+		try {
+			if (writer == null) {
+				Files.createDirectories(path.toAbsolutePath().getParent());
+				writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+			writer.write(line);
+			writer.newLine();
+			writer.flush();
+			fileLines++;
+		} catch (IOException e) {
+			LOG.warn("Failed writing exchange store " + path, e);
+			closeWriter();
+			return;
+		}
+		if (needsCompaction()) compactNow();
+	}
+
+	private boolean needsCompaction() {
+		return fileLines >= COMPACT_MIN_LINES && fileLines > COMPACT_RATIO * size();
+	}
+
+	private void compactNow() {
+		final List<Exchange> live = getAll();
+		final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				for (var exchange : live) {
+					out.write(gson.toJson(exchange));
+					out.newLine();
+				}
+			}
+			closeWriter();
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			fileLines = live.size();
+		} catch (IOException e) {
+			LOG.warn("Failed compacting exchange store " + path, e);
+		}
+	}
+
+	private void closeWriter() {
+		if (writer == null) return;
+		try {
+			writer.close();
+		} catch (IOException ignored) {
+		}
+		writer = null;
+	}
+}
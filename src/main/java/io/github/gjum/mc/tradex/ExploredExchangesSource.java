@@ -3,105 +3,140 @@ package io.github.gjum.mc.tradex;
 import io.github.gjum.mc.tradex.model.Exchange;
 import io.github.gjum.mc.tradex.model.ExchangeChest;
 import io.github.gjum.mc.tradex.model.Pos;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.function.Predicate;
 
-import static io.github.gjum.mc.tradex.Utils.mc;
-
 /**
  * Highlight source for exchanges discovered through chat parsing.
  * Supports distance/time-based automatic purging.
  */
-public class ExploredExchangesSource implements HighlightSource {
-	private final HashMap<Pos, ExchangeChest> exchanges = new HashMap<>();
-	private final Map<Pos, Long> highlightCreationTimes = new HashMap<>();
-	private final HashSet<Pos> suppressedPositions = new HashSet<>();
+public class ExploredExchangesSource extends AbstractHighlightSource {
+	// all keyed by Pos.key()
+	private final Long2ObjectOpenHashMap<ExchangeChest> exchanges = new Long2ObjectOpenHashMap<>();
+	private final Long2LongOpenHashMap highlightCreationTimes = new Long2LongOpenHashMap();
+	/**
+	 * Positions of all unsuppressed chests in `exchanges`.
+	 */
+	private final SpatialIndex<Pos> activeIndex = new SpatialIndex<>();
+	/**
+	 * Min-heap of creation times, for lifetime purging: each tick only looks at the oldest ones.
+	 * Entries whose position got a newer creation time (or none) are outdated and skipped when they come up.
+	 */
+	private final PriorityQueue<Expiry> expiryQueue = new PriorityQueue<>(Comparator.comparingLong(Expiry::createdAt));
+	/**
+	 * Where the player was during the last distance purge; only purged again once this changes
+	 * or positions were added.
+	 */
+	private @Nullable Pos distancePurgedAt;
+	private int distancePurgedMaxDist;
+	private final ArrayList<Pos> purgeScratch = new ArrayList<>();
+
+	private record Expiry(Pos pos, long createdAt) {}
 
 	@Override
 	public Collection<Pos> getActivePositions(Pos playerPos, long now, @Nullable Predicate<Pos> extraFilter) {
-		if (TradexMod.mod == null || mc.player == null) {
-			return new ArrayList<>();
-		}
-
-		var config = TradexConfig.getInstance();
-		Set<Pos> result = new HashSet<>();
-
-		int maxDist = config.highlightMaxDistance;
-		int lifetimeSec = config.highlightLifetimeSeconds;
-		var playerBlockPos = mc.player.blockPosition();
+		return getSnapshot(extraFilter);
+	}
 
-		// Iterate using iterator for safe removal without copying
-		var it = exchanges.entrySet().iterator();
-		while (it.hasNext()) {
-			var entry = it.next();
-			Pos pos = entry.getKey();
+	@Override
+	protected void collectActivePositions(@NotNull List<Pos> out) {
+		activeIndex.collectAll(out);
+	}
 
-			// Skip suppressed positions
-			if (suppressedPositions.contains(pos)) {
-				continue;
-			}
+	@Override
+	public void tick(Pos playerPos, long now) {
+		var config = TradexConfig.getInstance();
+		tick(playerPos, now, config.highlightLifetimeSeconds, config.highlightMaxDistance);
+	}
 
-			// Track creation time if not yet tracked
-			highlightCreationTimes.putIfAbsent(pos, now);
-			long createdAt = highlightCreationTimes.get(pos);
+	void tick(Pos playerPos, long now, int lifetimeSec, int maxDist) {
+		// Time check
+		while (!expiryQueue.isEmpty()) {
+			var expiry = expiryQueue.peek();
+			final long key = expiry.pos.key();
+			boolean current = highlightCreationTimes.containsKey(key) && highlightCreationTimes.get(key) == expiry.createdAt;
+			if (current && (lifetimeSec <= 0 || now - expiry.createdAt <= lifetimeSec * 1000L)) break;
+			expiryQueue.poll();
+			if (current) purge(expiry.pos);
+		}
 
-			boolean shouldPurge = false;
+		// Distance check
+		if (maxDist > 0 && (maxDist != distancePurgedMaxDist || !playerPos.equals(distancePurgedAt))) {
+			purgeScratch.clear();
+			activeIndex.collectBeyond(playerPos, maxDist, purgeScratch);
+			for (Pos pos : purgeScratch) purge(pos);
+			purgeScratch.clear();
+			distancePurgedAt = playerPos;
+			distancePurgedMaxDist = maxDist;
+		}
+	}
 
-			// Distance check
-			if (maxDist > 0) {
-				double distSq = pos.block().distSqr(playerBlockPos);
-				if (distSq > (double) maxDist * maxDist) {
-					shouldPurge = true;
-				}
-			}
+	/**
+	 * Forget the exchanges at this position, and don't highlight it again until it is explored again.
+	 */
+	private void purge(Pos pos) {
+		exchanges.remove(pos.key());
+		highlightCreationTimes.remove(pos.key());
+		suppressedPositions.add(pos.key());
+		if (activeIndex.remove(pos) != null) fireRemoved(pos);
+	}
 
-			// Time check
-			if (lifetimeSec > 0) {
-				long elapsedMs = now - createdAt;
-				if (elapsedMs > lifetimeSec * 1000L) {
-					shouldPurge = true;
-				}
-			}
+	/**
+	 * Drop the exchanges at this position without suppressing it.
+	 */
+	private void forget(Pos pos) {
+		if (exchanges.remove(pos.key()) == null) return;
+		highlightCreationTimes.remove(pos.key());
+		if (activeIndex.remove(pos) != null) fireRemoved(pos);
+	}
 
-			if (shouldPurge) {
-				// Purge this position using iterator for safe removal
-				it.remove();
-				highlightCreationTimes.remove(pos);
-				suppressedPositions.add(pos);
-			} else {
-				// Apply extra filter if provided
-				if (extraFilter == null || extraFilter.test(pos)) {
-					result.add(pos);
+	private void startLifetime(Pos pos, long now) {
+		highlightCreationTimes.put(pos.key(), now);
+		expiryQueue.add(new Expiry(pos, now));
+		// outdated entries normally surface and get dropped, unless lifetime purging is disabled
+		if (expiryQueue.size() > 2 * highlightCreationTimes.size() + 64) {
+			expiryQueue.clear();
+			for (var pos : getSnapshot()) {
+				if (highlightCreationTimes.containsKey(pos.key())) {
+					expiryQueue.add(new Expiry(pos, highlightCreationTimes.get(pos.key())));
 				}
 			}
 		}
-
-		return result;
 	}
 
 	@Override
-	public void markSuppressed(Pos pos) {
-		suppressedPositions.add(pos);
-		highlightCreationTimes.remove(pos);
+	public void collectPositionsWithin(Pos center, int range, long now, List<Pos> out) {
+		activeIndex.collectWithin(center, range, out);
 	}
 
 	@Override
-	public void unsuppress(Pos pos) {
-		suppressedPositions.remove(pos);
-		highlightCreationTimes.put(pos, System.currentTimeMillis());
+	public void markSuppressed(Pos pos) {
+		suppressedPositions.add(pos.key());
+		highlightCreationTimes.remove(pos.key());
+		if (activeIndex.remove(pos) != null) fireRemoved(pos);
 	}
 
 	@Override
-	public boolean isSuppressed(Pos pos) {
-		return suppressedPositions.contains(pos);
+	public void unsuppress(Pos pos) {
+		suppressedPositions.remove(pos.key());
+		if (!exchanges.containsKey(pos.key())) return;
+		startLifetime(pos, System.currentTimeMillis());
+		if (activeIndex.get(pos) == null) {
+			activeIndex.put(pos, pos);
+			distancePurgedAt = null;
+			fireAdded(pos);
+		}
 	}
 
 	@Override
@@ -109,6 +144,10 @@ public class ExploredExchangesSource implements HighlightSource {
 		exchanges.clear();
 		highlightCreationTimes.clear();
 		suppressedPositions.clear();
+		activeIndex.clear();
+		expiryQueue.clear();
+		distancePurgedAt = null;
+		fireReset();
 	}
 
 	@Override
@@ -121,7 +160,39 @@ public class ExploredExchangesSource implements HighlightSource {
 	 * @param exchange the exchange to add
 	 */
 	public void addExchange(@NotNull Exchange exchange) {
-		exchanges.computeIfAbsent(exchange.pos, e -> new ExchangeChest()).add(exchange);
+		// exchanges seen before double chests were detected may be stored under the other half
+		var adjacentPos = exchange.getAdjacentPos();
+		if (adjacentPos != null) forget(adjacentPos);
+
+		final long key = exchange.pos.key();
+		var chest = exchanges.get(key);
+		if (chest == null) exchanges.put(key, chest = new ExchangeChest());
+		chest.add(exchange);
+		if (suppressedPositions.contains(key)) return;
+		if (activeIndex.get(exchange.pos) != null) {
+			fireUpdated(exchange.pos);
+			return;
+		}
+		activeIndex.put(exchange.pos, exchange.pos);
+		if (!highlightCreationTimes.containsKey(key)) {
+			startLifetime(exchange.pos, System.currentTimeMillis());
+		}
+		distancePurgedAt = null;
+		fireAdded(exchange.pos);
+	}
+
+	/**
+	 * Add previously stored exchanges without highlighting them.
+	 * Positions already explored this session keep their newer data.
+	 * @param stored exchanges loaded from the {@link ExchangeStore}
+	 */
+	public void restoreExchanges(@NotNull Collection<Exchange> stored) {
+		var explored = new LongOpenHashSet(exchanges.keySet());
+		for (var exchange : stored) {
+			if (explored.contains(exchange.pos.key())) continue;
+			suppressedPositions.add(exchange.pos.key());
+			addExchange(exchange);
+		}
 	}
 
 	/**
@@ -131,7 +202,7 @@ public class ExploredExchangesSource implements HighlightSource {
 	 */
 	@Nullable
 	public ExchangeChest getChest(Pos pos) {
-		return exchanges.get(pos);
+		return exchanges.get(pos.key());
 	}
 
 	/**
@@ -139,6 +210,14 @@ public class ExploredExchangesSource implements HighlightSource {
 	 * @return the map of positions to ExchangeChests
 	 */
 	public HashMap<Pos, ExchangeChest> getAllExchanges() {
-		return new HashMap<>(exchanges);
+		var result = new HashMap<Pos, ExchangeChest>();
+		for (var chest : exchanges.values()) {
+			for (var exchange : chest.list) {
+				if (exchange == null) continue;
+				result.put(exchange.pos, chest);
+				break;
+			}
+		}
+		return result;
 	}
 }
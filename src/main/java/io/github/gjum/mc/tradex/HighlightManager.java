@@ -1,13 +1,12 @@
 package io.github.gjum.mc.tradex;
 
 import io.github.gjum.mc.tradex.model.Pos;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Predicate;
 
 import static io.github.gjum.mc.tradex.Utils.mc;
@@ -30,20 +29,26 @@ public class HighlightManager {
 	}
 
 	/**
-	 * Called every render tick to update highlight state.
-	 * Auto-purging logic only applies to sources that support it (e.g., explored exchanges).
+	 * Called every client tick to update highlight state.
+	 * Sources only look at highlights that are due: expired lifetimes, TTLs,
+	 * and (for auto-purging sources) positions out of range after the player moved.
 	 */
 	public void tick() {
 		if (mc.player == null) return;
 		long now = System.currentTimeMillis();
 		var playerPos = TradexMod.mod.getPlayerPos();
 
-		// Only sources that support auto-purging get their positions filtered during tick
-		// This is mainly for exploredExchanges - search results are filtered by TTL in getActivePositions()
 		for (HighlightSource source : sources) {
-			if (source.supportsAutoPurging()) {
-				source.getActivePositions(playerPos, now, null);
-			}
+			source.tick(playerPos, now);
+		}
+	}
+
+	/**
+	 * Subscribe to changes of all sources.
+	 */
+	public void addListener(HighlightSource.Listener listener) {
+		for (HighlightSource source : sources) {
+			source.addListener(listener);
 		}
 	}
 
@@ -80,9 +85,12 @@ public class HighlightManager {
 	 * Get all active positions from all sources.
 	 */
 	public Collection<Pos> getAllActivePositions(Pos playerPos, long now, @Nullable Predicate<Pos> extraFilter) {
-		Set<Pos> result = new HashSet<>();
+		var seen = new LongOpenHashSet();
+		var result = new ArrayList<Pos>();
 		for (HighlightSource source : sources) {
-			result.addAll(source.getActivePositions(playerPos, now, extraFilter));
+			for (Pos pos : source.getActivePositions(playerPos, now, extraFilter)) {
+				if (seen.add(pos.key())) result.add(pos);
+			}
 		}
 		return result;
 	}
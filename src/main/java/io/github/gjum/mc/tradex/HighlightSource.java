@@ -4,9 +4,34 @@ import io.github.gjum.mc.tradex.model.Pos;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.function.Predicate;
 
 public interface HighlightSource {
+	/**
+	 * Notified when positions start or stop being highlighted by a source.
+	 * Called on the client thread.
+	 */
+	interface Listener {
+		default void onHighlightAdded(HighlightSource source, Pos pos) {}
+
+		default void onHighlightRemoved(HighlightSource source, Pos pos) {}
+
+		/**
+		 * The data shown at a still highlighted position changed, e.g. updated stock.
+		 */
+		default void onHighlightUpdated(HighlightSource source, Pos pos) {}
+
+		/**
+		 * Any position may have changed, e.g. after a reset or a new search result.
+		 */
+		default void onHighlightsReset(HighlightSource source) {}
+	}
+
+	void addListener(Listener listener);
+
+	void removeListener(Listener listener);
+
 	/**
 	 * Returns positions that should be highlighted.
 	 *
@@ -17,6 +42,38 @@ public interface HighlightSource {
 	 */
 	Collection<Pos> getActivePositions(Pos playerPos, long now, @Nullable Predicate<Pos> extraFilter);
 
+	/**
+	 * All positions currently highlighted by this source, recomputed only after a change.
+	 * Unmodifiable; does not apply any time-based filtering itself, see {@link #tick}.
+	 */
+	Collection<Pos> getSnapshot();
+
+	/**
+	 * Called every client tick by the {@link HighlightManager}, to expire and purge highlights.
+	 * Only does work for highlights that are due, not for every position.
+	 *
+	 * @param playerPos current player position for distance calculation
+	 * @param now current timestamp
+	 */
+	void tick(Pos playerPos, long now);
+
+	/**
+	 * Collects active positions within range of a center block, using this source's {@link SpatialIndex}.
+	 * Cost scales with the number of positions nearby, not the total number in this source.
+	 *
+	 * @param center block to measure the range from; only positions on the same server and world are collected
+	 * @param range maximum distance in blocks
+	 * @param now current timestamp for time-based filtering
+	 * @param out receives the positions; not cleared, so callers can reuse one list
+	 */
+	void collectPositionsWithin(Pos center, int range, long now, List<Pos> out);
+
+	/**
+	 * Incremented whenever the highlighted positions or their data change (with every {@link Listener} event),
+	 * so renderers can keep their geometry until it does.
+	 */
+	int getVersion();
+
 	/**
 	 * Mark a position as suppressed (hidden) for this source.
 	 * @param pos position to suppress
@@ -0,0 +1,170 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.api.Exchanges;
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Rule;
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers a {@link SearchQuery} from locally known exchanges, without hitting the API:
+ * those seen in chat ({@link ExchangeStore}) and those returned by remote searches this session.
+ */
+public class LocalSearch {
+	/**
+	 * Remembered remote exchanges beyond this are forgotten, least recently seen first.
+	 */
+	static final int MAX_REMEMBERED = 5000;
+
+	private final ExchangeStore store;
+	/**
+	 * Exchanges from remote search results, so repeated searches can be answered offline.
+	 * In access order, so an exchange seen again in a result is kept longer.
+	 */
+	private final LinkedHashMap<ExchangeStore.Key, Exchange> remoteExchanges = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ExchangeStore.Key, Exchange> eldest) {
+			return size() > MAX_REMEMBERED;
+		}
+	};
+
+	public LocalSearch(@NotNull ExchangeStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Like {@link #search}, off the client thread, as it goes through all known exchanges.
+	 */
+	public @NotNull CompletableFuture<Exchanges.SearchResult> searchAsync(@NotNull SearchQuery query) {
+		return CompletableFuture.supplyAsync(() -> search(query));
+	}
+
+	public @NotNull Exchanges.SearchResult search(@NotNull SearchQuery query) {
+		final String[][] inputSpec = parseSpec(query.input);
+		final String[][] outputSpec = parseSpec(query.output);
+		var candidates = new LinkedHashMap<ExchangeStore.Key, Exchange>();
+		synchronized (remoteExchanges) {
+			for (var exchange : remoteExchanges.values()) {
+				if (matches(query, inputSpec, outputSpec, exchange)) candidates.put(ExchangeStore.Key.of(exchange), exchange);
+			}
+		}
+		var stored = query.pos == null ? store.getAll() : store.getAll(query.pos.server);
+		for (var exchange : stored) {
+			if (matches(query, inputSpec, outputSpec, exchange)) putNewer(candidates, exchange);
+		}
+		return sortAndLimit(query, new ArrayList<>(candidates.values()));
+	}
+
+	/**
+	 * Remember the exchanges of a remote search result for later local searches.
+	 */
+	public void remember(@Nullable Exchanges.SearchResult result) {
+		if (result == null) return;
+		synchronized (remoteExchanges) {
+			for (var exchange : result.exchanges) {
+				if (exchange.pos == null) continue;
+				remoteExchanges.put(ExchangeStore.Key.of(exchange), exchange);
+			}
+		}
+	}
+
+	/**
+	 * Forget the remembered remote exchanges, e.g. when joining another server.
+	 */
+	public void clear() {
+		synchronized (remoteExchanges) {
+			remoteExchanges.clear();
+		}
+	}
+
+	/**
+	 * Combine local and remote results for the same query.
+	 * For exchanges present in both, the more recently updated one wins.
+	 */
+	public static @NotNull Exchanges.SearchResult merge(
+			@NotNull SearchQuery query,
+			@NotNull Exchanges.SearchResult local,
+			@Nullable Exchanges.SearchResult remote
+	) {
+		if (remote == null) return local;
+		var merged = new LinkedHashMap<ExchangeStore.Key, Exchange>();
+		for (var exchange : remote.exchanges) {
+			if (exchange.pos == null) continue;
+			merged.put(ExchangeStore.Key.of(exchange), exchange);
+		}
+		for (var exchange : local.exchanges) {
+			putNewer(merged, exchange);
+		}
+		return sortAndLimit(query, new ArrayList<>(merged.values()));
+	}
+
+	private static void putNewer(HashMap<ExchangeStore.Key, Exchange> map, Exchange exchange) {
+		var key = ExchangeStore.Key.of(exchange);
+		var existing = map.get(key);
+		if (existing == null || existing.time < exchange.time) map.put(key, exchange);
+	}
+
+	private static @NotNull Exchanges.SearchResult sortAndLimit(@NotNull SearchQuery query, @NotNull List<Exchange> exchanges) {
+		exchanges.sort(Exchanges.comparator(query));
+		if (query.limit > 0 && exchanges.size() > query.limit) {
+			exchanges = new ArrayList<>(exchanges.subList(0, query.limit));
+		}
+		var result = new Exchanges.SearchResult(exchanges);
+		result.ts = System.currentTimeMillis();
+		return result;
+	}
+
+	public static boolean matches(@NotNull SearchQuery query, @NotNull Exchange exchange) {
+		return matches(query, parseSpec(query.input), parseSpec(query.output), exchange);
+	}
+
+	private static boolean matches(@NotNull SearchQuery query, @Nullable String[][] inputSpec, @Nullable String[][] outputSpec, @NotNull Exchange exchange) {
+		if (exchange.pos == null) return false;
+		if (query.pos != null && !query.pos.server.equals(exchange.pos.server)) return false;
+		if (exchange.time < query.updatedAfter) return false;
+		if (!query.allowUnstocked && exchange.stock <= 0) return false;
+		return matchesSpec(inputSpec, exchange.input)
+				&& matchesSpec(outputSpec, exchange.output);
+	}
+
+	/**
+	 * Normalized once per search instead of once per exchange.
+	 * @param queryText comma-separated alternatives, each a list of words that must all occur in the rule's spec
+	 * @return words of each non-empty alternative, or null if the query matches everything
+	 */
+	private static @Nullable String[][] parseSpec(@Nullable String queryText) {
+		if (queryText == null || queryText.isBlank()) return null;
+		var alternatives = new ArrayList<String[]>();
+		for (String alternative : queryText.split(",")) {
+			alternative = alternative.trim();
+			if (alternative.isEmpty()) continue;
+			alternatives.add(SearchQuery.normalizeMaterialNames(alternative).split("\\s+"));
+		}
+		return alternatives.toArray(new String[0][]);
+	}
+
+	private static boolean matchesSpec(@Nullable String[][] alternatives, @Nullable Rule rule) {
+		if (alternatives == null) return true;
+		if (rule == null) return false;
+		final String spec = rule.getSpec();
+		for (String[] words : alternatives) {
+			boolean allFound = true;
+			for (String word : words) {
+				if (!spec.contains(word)) {
+					allFound = false;
+					break;
+				}
+			}
+			if (allFound) return true;
+		}
+		return false;
+	}
+}
@@ -3,7 +3,10 @@ package io.github.gjum.mc.tradex;
 //? if >=1.21.11 || <1.21.6 {
 public class OverlayRender {}
 //?} else {
-/*import io.github.gjum.mc.tradex.model.Pos;
+/*import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.DeltaTracker;
 import net.minecraft.core.BlockPos;
@@ -16,7 +19,6 @@ import org.joml.Vector4f;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 import static io.github.gjum.mc.tradex.TradexMod.mod;
@@ -37,6 +39,37 @@ public class OverlayRender {
 	// Minimum indicator size in pixels (for very distant blocks)
 	private static final int MIN_DOT_SIZE = 2;
 
+	// reused across frames, filled from the highlight sources' spatial indexes
+	private static final ArrayList<Exchange> exchangesInRange = new ArrayList<>();
+
+	// Occlusion raycasts are cached per block (BlockPos.asLong) and spread over frames.
+	// A cached result is rechecked once the camera moved this far since, or it is this old
+	// (blocks may have been placed or broken in between).
+	private static final double OCCLUSION_CAMERA_MOVE_SQ = 0.5 * 0.5;
+	private static final long OCCLUSION_TTL_MS = 2000;
+	// At most this many raycasts per frame; the remaining blocks keep their previous result
+	// (or show no dot yet) and get their turn in the next frames.
+	private static final int MAX_RAYCASTS_PER_FRAME = 16;
+	private static final long OCCLUSION_PRUNE_INTERVAL_MS = 10_000;
+	private static final Long2ObjectOpenHashMap<OcclusionCheck> occlusionCache = new Long2ObjectOpenHashMap<>();
+	private static int raycastBudget;
+	private static long lastOcclusionPrune;
+
+	static {
+		// forget cached occlusion results of blocks that are no longer highlighted
+		mod.highlightManager.addListener(new HighlightSource.Listener() {
+			@Override
+			public void onHighlightRemoved(HighlightSource source, Pos pos) {
+				occlusionCache.remove(BlockPos.asLong(pos.x, pos.y, pos.z));
+			}
+
+			@Override
+			public void onHighlightsReset(HighlightSource source) {
+				occlusionCache.clear();
+			}
+		});
+	}
+
 	public static void renderHudOverlay(GuiGraphics graphics, DeltaTracker tickDelta) {
 		if (mc.player == null || mc.level == null) return;
 		if (mc.options.hideGui) return;
@@ -44,8 +77,9 @@ public class OverlayRender {
 		var now = System.currentTimeMillis();
 		var hourMs = 3600_000;
 		int range = 200;
+		var playerPos = mod.getPlayerPos();
 
-		var drew = new HashSet<Pos>();
+		var drew = new LongOpenHashSet();
 
 		Vec3 camPos = mc.gameRenderer.getMainCamera().getPosition();
 		Matrix4f projectionMatrix = mc.gameRenderer.getProjectionMatrix(mc.options.fov().get());
@@ -57,19 +91,26 @@ public class OverlayRender {
 
 		List<DotIndicator> dotsToDraw = new ArrayList<>();
 
+		raycastBudget = MAX_RAYCASTS_PER_FRAME;
+		if (now - lastOcclusionPrune > OCCLUSION_PRUNE_INTERVAL_MS) {
+			lastOcclusionPrune = now;
+			// forget blocks that were not looked at recently (out of range, search cleared, ...)
+			occlusionCache.values().removeIf(check -> check.usedAt < now - OCCLUSION_PRUNE_INTERVAL_MS);
+		}
+
 		// Collect search results
 		var searchResult = mod.highlightManager.searchSource.getSearchResult();
 		if (searchResult != null && searchResult.ts > now - hourMs) {
-			for (var exchange : searchResult.exchanges) {
-				if (exchange.pos == null) continue;
-				if (drew.contains(exchange.pos)) continue;
-				if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
+			exchangesInRange.clear();
+			mod.highlightManager.searchSource.collectExchangesWithin(playerPos, range, now, exchangesInRange);
+			for (var exchange : exchangesInRange) {
+				if (drew.contains(exchange.pos.key())) continue;
 
 				var blockPos = exchange.pos.block();
 				var center = Vec3.atCenterOf(blockPos);
 
 				// Only show dot if the block is occluded (not visible)
-				if (!isBlockOccluded(camPos, blockPos)) continue;
+				if (!isBlockOccluded(camPos, blockPos, now)) continue;
 
 				var screenPos = projectPoint(center, camPos, viewProj, screenWidth, screenHeight);
 				if (screenPos != null) {
@@ -77,7 +118,7 @@ public class OverlayRender {
 					int size = calculateDotSize(center, camPos, viewProj, screenHeight, mc.options.fov().get());
 					dotsToDraw.add(new DotIndicator((int) screenPos[0], (int) screenPos[1],
 							size, COLOR_LIGHTBLUE, distance));
-					drew.add(exchange.pos);
+					drew.add(exchange.pos.key());
 				}
 			}
 		}
@@ -85,16 +126,16 @@ public class OverlayRender {
 		// Collect nearby exchanges
 		var nearbyResult = mod.highlightManager.nearbySource.getSearchResult();
 		if (nearbyResult != null && nearbyResult.ts > now - hourMs) {
-			for (var exchange : nearbyResult.exchanges) {
-				if (exchange.pos == null) continue;
-				if (drew.contains(exchange.pos)) continue;
-				if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
+			exchangesInRange.clear();
+			mod.highlightManager.nearbySource.collectExchangesWithin(playerPos, range, now, exchangesInRange);
+			for (var exchange : exchangesInRange) {
+				if (drew.contains(exchange.pos.key())) continue;
 
 				var blockPos = exchange.pos.block();
 				var center = Vec3.atCenterOf(blockPos);
 
 				// Only show dot if the block is occluded (not visible)
-				if (!isBlockOccluded(camPos, blockPos)) continue;
+				if (!isBlockOccluded(camPos, blockPos, now)) continue;
 
 				// Determine color based on stock and update time (same as 3D boxes)
 				// Out of stock = RED, outdated (> 1 week) = ORANGE, recent & stocked = green-blue mixture
@@ -108,7 +149,7 @@ public class OverlayRender {
 					int size = calculateDotSize(center, camPos, viewProj, screenHeight, mc.options.fov().get());
 					dotsToDraw.add(new DotIndicator((int) screenPos[0], (int) screenPos[1],
 							size, colorToArgb(color, 0.27f), distance));
-					drew.add(exchange.pos);
+					drew.add(exchange.pos.key());
 				}
 			}
 		}
@@ -122,8 +163,35 @@ public class OverlayRender {
 		}
 	}
 
+	// Check if a block is occluded, reusing a recent result for that block while the camera stays put.
+	// Raycasts are capped per frame; over budget, a previous result is reused even if outdated,
+	// and blocks never checked before count as visible until their first check.
+	private static boolean isBlockOccluded(Vec3 camPos, BlockPos targetBlock, long now) {
+		var check = occlusionCache.get(targetBlock.asLong());
+		if (check != null) {
+			check.usedAt = now;
+			boolean fresh = now - check.checkedAt < OCCLUSION_TTL_MS
+					&& camPos.distanceToSqr(check.camX, check.camY, check.camZ) < OCCLUSION_CAMERA_MOVE_SQ;
+			if (fresh || raycastBudget <= 0) return check.occluded;
+		} else if (raycastBudget <= 0) {
+			return false;
+		}
+		raycastBudget--;
+		if (check == null) {
+			check = new OcclusionCheck();
+			check.usedAt = now;
+			occlusionCache.put(targetBlock.asLong(), check);
+		}
+		check.occluded = raycastOccluded(camPos, targetBlock);
+		check.checkedAt = now;
+		check.camX = camPos.x;
+		check.camY = camPos.y;
+		check.camZ = camPos.z;
+		return check.occluded;
+	}
+
 	// Check if a block is occluded (something is blocking the view between camera and block)
-	private static boolean isBlockOccluded(Vec3 camPos, BlockPos targetBlock) {
+	private static boolean raycastOccluded(Vec3 camPos, BlockPos targetBlock) {
 		if (mc.level == null) return false;
 
 		Vec3 targetCenter = Vec3.atCenterOf(targetBlock);
@@ -250,5 +318,12 @@ public class OverlayRender {
 	}
 
 	record DotIndicator(int x, int y, int size, int color, float distance) {}
+
+	private static class OcclusionCheck {
+		boolean occluded;
+		long checkedAt;
+		long usedAt;
+		double camX, camY, camZ;
+	}
 }
 *///?}
@@ -0,0 +1,163 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.MaterialNormalizer;
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Rates of all exchanges seen in chat or in search results, grouped by what they sell and what they ask in return,
+ * both as normalized specs (see {@link SearchQuery#getSpecForRule}).
+ * Rates count items as their specs name them, so a compacted item counts as one "compacted ..." item.
+ * An exchange seen again replaces its previous rate. Thread-safe.
+ */
+public class PriceIndex {
+	/**
+	 * Prices of one output item, in input items, over all known exchanges trading input for output.
+	 */
+	public record Stats(@NotNull String output, @NotNull String input, int count, double min, double median, double max) {
+		public @NotNull String describe() {
+			if (count == 1) {
+				return "%s %s per %s (1 shop)".formatted(Utils.rateToText(min), input, output);
+			}
+			return "%s / %s / %s %s per %s (min / median / max of %d shops)".formatted(
+					Utils.rateToText(min), Utils.rateToText(median), Utils.rateToText(max), input, output, count);
+		}
+	}
+
+	/**
+	 * Sorted, so min, median and max are read directly.
+	 */
+	private static class Rates {
+		final DoubleArrayList sorted = new DoubleArrayList(1);
+
+		void add(double rate) {
+			int i = Arrays.binarySearch(sorted.elements(), 0, sorted.size(), rate);
+			sorted.add(i < 0 ? -i - 1 : i, rate);
+		}
+
+		void remove(double rate) {
+			int i = Arrays.binarySearch(sorted.elements(), 0, sorted.size(), rate);
+			if (i >= 0) sorted.removeDouble(i);
+		}
+
+		Stats stats(String output, String input) {
+			int n = sorted.size();
+			double median = n % 2 == 1 ? sorted.getDouble(n / 2)
+					: (sorted.getDouble(n / 2 - 1) + sorted.getDouble(n / 2)) / 2;
+			return new Stats(output, input, n, sorted.getDouble(0), median, sorted.getDouble(n - 1));
+		}
+	}
+
+	/**
+	 * @param material normalized material of the output, see {@link #specsByMaterial}
+	 */
+	private record Entry(String output, String material, String input, double rate) {}
+
+	/**
+	 * Output spec -> input spec -> rates. Sorted by output spec, for prefix lookups.
+	 */
+	private final TreeMap<String, HashMap<String, Rates>> byOutput = new TreeMap<>();
+	/**
+	 * Normalized output material -> output specs, to also find specs with words before the material,
+	 * e.g. "compacted diamond" or "enchanted efficiency5 diamond pickaxe" for "diamond".
+	 */
+	private final TreeMap<String, HashSet<String>> specsByMaterial = new TreeMap<>();
+	/**
+	 * What each exchange currently contributes, so it can be replaced when the exchange is seen again.
+	 */
+	private final HashMap<ExchangeStore.Key, Entry> entries = new HashMap<>();
+
+	/**
+	 * Unlike the "cheapest" sort mode, compacted items are not decompacted, to match the specs the rate is shown with.
+	 * @return input items per output item
+	 */
+	static double price(@NotNull Exchange exchange) {
+		double inCount = Math.max(1, (double) exchange.input.count);
+		double outCount = Math.max(1, (double) exchange.output.count);
+		return inCount / outCount;
+	}
+
+	public synchronized void add(@NotNull Exchange exchange) {
+		if (exchange.pos == null || exchange.input == null || exchange.output == null) return;
+		var entry = new Entry(
+				SearchQuery.getSpecForRule(exchange.output),
+				MaterialNormalizer.normalize(exchange.output.material),
+				SearchQuery.getSpecForRule(exchange.input),
+				price(exchange));
+		var previous = entries.put(ExchangeStore.Key.of(exchange), entry);
+		if (previous != null) remove(previous);
+		byOutput.computeIfAbsent(entry.output, k -> new HashMap<>())
+				.computeIfAbsent(entry.input, k -> new Rates())
+				.add(entry.rate);
+		specsByMaterial.computeIfAbsent(entry.material, k -> new HashSet<>()).add(entry.output);
+	}
+
+	public void addAll(@Nullable Collection<Exchange> exchanges) {
+		if (exchanges == null) return;
+		for (var exchange : exchanges) add(exchange);
+	}
+
+	private void remove(Entry entry) {
+		var byInput = byOutput.get(entry.output);
+		if (byInput == null) return;
+		var rates = byInput.get(entry.input);
+		if (rates == null) return;
+		rates.remove(entry.rate);
+		if (!rates.sorted.isEmpty()) return;
+		byInput.remove(entry.input);
+		if (!byInput.isEmpty()) return;
+		byOutput.remove(entry.output);
+		var specs = specsByMaterial.get(entry.material);
+		if (specs != null && specs.remove(entry.output) && specs.isEmpty()) specsByMaterial.remove(entry.material);
+	}
+
+	public synchronized void clear() {
+		byOutput.clear();
+		specsByMaterial.clear();
+		entries.clear();
+	}
+
+	/**
+	 * @param item material name or spec of the bought item; also finds specs starting with it, e.g. "diamond" finds "diamond pickaxe",
+	 *             and specs whose material starts with it, e.g. "diamond" finds "compacted diamond"
+	 * @return prices of matching items, exact matches first, then those with the most shops
+	 */
+	public synchronized @NotNull List<Stats> lookup(@NotNull String item) {
+		final String prefix = MaterialNormalizer.normalize(item.trim());
+		var result = new ArrayList<Stats>();
+		if (prefix.isEmpty()) return result;
+		var outputs = new LinkedHashSet<>(byOutput.subMap(prefix, true, prefix + Character.MAX_VALUE, true).keySet());
+		for (var specs : specsByMaterial.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+			outputs.addAll(specs);
+		}
+		for (var output : outputs) {
+			for (var rates : byOutput.get(output).entrySet()) {
+				result.add(rates.getValue().stats(output, rates.getKey()));
+			}
+		}
+		result.sort(Comparator.comparing((Stats s) -> !s.output.equals(prefix))
+				.thenComparing(Comparator.comparingInt(Stats::count).reversed()));
+		return result;
+	}
+
+	/**
+	 * @return the most traded price of that item, or null if it was never seen
+	 */
+	public @Nullable Stats mostTraded(@NotNull String item) {
+		var matches = lookup(item);
+		return matches.isEmpty() ? null : matches.get(0);
+	}
+}
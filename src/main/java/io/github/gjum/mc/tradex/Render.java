@@ -32,20 +32,49 @@ import com.mojang.blaze3d.vertex.VertexFormat;
 import org.joml.Matrix4fStack;
 *///?}
 
+import io.github.gjum.mc.tradex.model.Exchange;
 import io.github.gjum.mc.tradex.model.Pos;
 //? if >=1.21.11 {
 import net.fabricmc.fabric.api.client.rendering.v1.world.WorldRenderContext;
 //?} else {
 /*import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
 *///?}
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
-import java.awt.Color;import java.util.HashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import static io.github.gjum.mc.tradex.TradexMod.mod;
 import static io.github.gjum.mc.tradex.Utils.mc;
 
 public class Render {
+	private static final float BOX_ALPHA = 0.3f;
+
+	// reused across rebuilds, filled from the highlight sources' spatial indexes
+	private static final ArrayList<Exchange> exchangesInRange = new ArrayList<>();
+	private static final ArrayList<Pos> positionsInRange = new ArrayList<>();
+	// positions (Pos.key) already drawn by another source
+	private static final LongOpenHashSet drew = new LongOpenHashSet();
+	private static @Nullable Pos lastPlayerPos;
+
+	// Highlight geometry is rebuilt only when it's outdated, see isGeometryOutdated()
+	private static final BoxList depthTestedBoxes = new BoxList();
+	private static final BoxList throughBlocksBoxes = new BoxList();
+	private static @Nullable Pos builtPlayerPos;
+	private static long builtMinute = -1;
+	private static int builtExploredVersion = -1;
+	private static int builtSearchVersion = -1;
+	private static int builtNearbyVersion = -1;
+	//? if >=1.21.11 {
+	// dedicated buffer for the see-through boxes, reused across frames; grows as needed
+	private static final ByteBufferBuilder throughBlocksBuffer = new ByteBufferBuilder(1024);
+	private static final MultiBufferSource.BufferSource throughBlocksConsumers = MultiBufferSource.immediate(throughBlocksBuffer);
+	//?}
+
 	//? if >=1.21.11 {
 	/** Custom render type identical to debugFilledBox but with NO_DEPTH_TEST. */
 	private static RenderType noDepthFilledBox;
@@ -126,16 +155,68 @@ public class Render {
 
 		// common config for all modes
 		RenderSystem.enableBlend();
+		*///?}
 
+		var now = System.currentTimeMillis();
+		var playerPos = getPlayerPos();
+		if (isGeometryOutdated(playerPos, now)) {
+			rebuildGeometry(playerPos, now);
+		}
+
+		//? if >=1.21.11 {
+		// Explored exchanges respect depth test (blocked by walls)
+		renderBoxes(matrices, consumers, depthTestedBoxes, false);
+		// Use a separate BufferSource for see-through boxes so we fully control the flush
+		// and our custom NO_DEPTH_TEST pipeline is properly applied.
+		renderBoxes(matrices, throughBlocksConsumers, throughBlocksBoxes, true);
+		throughBlocksConsumers.endBatch();
+		//?} else if >=1.21.6 {
+		/*// For 1.21.6-1.21.10: render everything with depth testing (blocked by walls)
+		// Dot overlay (OverlayRender) shows positions through walls
+		renderBoxes(matrices, consumers, depthTestedBoxes);
+		renderBoxes(matrices, consumers, throughBlocksBoxes);
+		*///?} else {
+		/*RenderSystem.enableDepthTest();
+		renderBoxes(depthTestedBoxes);
 		// render through blocks
 		RenderSystem.disableDepthTest();
+		renderBoxes(throughBlocksBoxes);
+		*///?}
+
+		//? if >=1.21.6 {
+		matrices.popPose();
+		//?} else {
+		/*// cleanup
+		RenderSystem.enableDepthTest();
+		RenderSystem.depthMask(true);
+
+		modelViewStack.popMatrix();
 		*///?}
+	}
 
+	/**
+	 * The cached boxes are valid until a source changes, the player moves to another block,
+	 * or a minute passes (colors and TTLs depend on the current time).
+	 */
+	private static boolean isGeometryOutdated(@NotNull Pos playerPos, long now) {
+		var highlights = mod.highlightManager;
+		return builtPlayerPos != playerPos
+				|| builtMinute != now / 60_000
+				|| builtExploredVersion != highlights.exploredSource.getVersion()
+				|| builtSearchVersion != highlights.searchSource.getVersion()
+				|| builtNearbyVersion != highlights.nearbySource.getVersion();
+	}
+
+	/**
+	 * Collects the boxes of all highlight sources within range, resolving overlaps between sources.
+	 */
+	private static void rebuildGeometry(@NotNull Pos playerPos, long now) {
 		int range = 200;
-		var now = System.currentTimeMillis();
 		var hourMs = 3600_000;
 
-		var drew = new HashSet<Pos>();
+		depthTestedBoxes.clear();
+		throughBlocksBoxes.clear();
+		drew.clear();
 
 		// Check if nearby highlighting is active - if so, render it first and skip explored for those positions
 		boolean nearbyActive = mod.highlightManager.nearbySource.hasActiveHighlights();
@@ -144,77 +225,29 @@ public class Render {
 		// When active, render BEFORE explored to take priority (updated colors)
 		// For 1.21.11+: render through walls using NO_DEPTH_TEST pipeline
 		// For 1.21.6-1.21.10: render with depth testing (blocked by walls), dot overlay shows positions
-		if (nearbyActive) {
-			var nearbyResult = mod.highlightManager.nearbySource.getSearchResult();
-			if (nearbyResult != null && nearbyResult.ts > now - hourMs) {
-				//? if >=1.21.11 {
-				// Use a separate BufferSource for nearby boxes
-				var nearbyBuffer = new ByteBufferBuilder(1024);
-				try {
-					var nearbyConsumers = MultiBufferSource.immediate(nearbyBuffer);
-					for (var exchange : nearbyResult.exchanges) {
-						if (drew.contains(exchange.pos)) continue; // already drawn from search results
-						if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-
-						// Determine color based on stock and update time
-						// Out of stock = RED, outdated (> 1 week) = ORANGE, recent & stocked = green-blue mixture
-						var color = exchange.stock <= 0 ? Color.RED
-								: exchange.time < now - Utils.weekMs ? Color.ORANGE
-								: new Color(0, 1f, 0.5f);
-
-						// inflate 0.01 to show above barrel without z fighting
-						var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-						renderFilledBox(matrices, nearbyConsumers, aabb, color, 0.3f, true);
-						drew.add(exchange.pos);
-					}
-					// Flush and close our dedicated buffer
-					((MultiBufferSource.BufferSource) nearbyConsumers).endBatch();
-				} finally {
-					nearbyBuffer.close();
-				}
-				//?} else if >=1.21.6 {
-				/*// For 1.21.6-1.21.10: render with depth testing (blocked by walls)
-				// Dot overlay (OverlayRender) shows positions through walls
-				for (var exchange : nearbyResult.exchanges) {
-					if (drew.contains(exchange.pos)) continue; // already drawn from search results
-					if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-
-					// Determine color based on stock and update time
-					// Out of stock = RED, outdated (> 1 week) = ORANGE, recent & stocked = green-blue mixture
-					var color = exchange.stock <= 0 ? Color.RED
-							: exchange.time < now - Utils.weekMs ? Color.ORANGE
-							: new Color(0, 1f, 0.5f);
-
-					// inflate 0.01 to show above barrel without z fighting
-					var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-					renderFilledBox(matrices, consumers, aabb, color, 0.3f);
-					drew.add(exchange.pos);
-				}
-				*///?}
-			}
-		}
+		if (nearbyActive) addNearbyBoxes(playerPos, range, now);
 
 		// Render explored exchanges (from chat)
 		// These should respect depth test (blocked by walls)
-		//? if <1.21.6 {
-		/*RenderSystem.enableDepthTest();
-		*///?}
-		var exploredPositions = mod.highlightManager.exploredSource.getActivePositions(
-			mod.getPlayerPos(), now, pos -> pos.block().distSqr(mc.player.blockPosition()) <= range * range
-		);
-		for (Pos pos : exploredPositions) {
-			if (drew.contains(pos)) continue; // already drawn (from search or nearby)
+		positionsInRange.clear();
+		mod.highlightManager.exploredSource.collectPositionsWithin(playerPos, range, now, positionsInRange);
+		for (int i = 0; i < positionsInRange.size(); i++) {
+			var pos = positionsInRange.get(i);
+			if (drew.contains(pos.key())) continue; // already drawn (from search or nearby)
 
 			var chest = mod.highlightManager.exploredSource.getChest(pos);
 			if (chest == null) continue;
 
 			var anyNull = false;
 			long minTime = now;
-			for (var exchange : chest.list) {
+			Exchange container = null;
+			for (int j = 0; j < chest.list.size(); j++) {
+				var exchange = chest.list.get(j);
 				if (exchange == null) {
 					anyNull = true;
 					continue;
 				}
+				container = exchange;
 				minTime = Math.min(minTime, exchange.time);
 				if (chest.list.size() < exchange.multi) {
 					anyNull = true;
@@ -225,21 +258,10 @@ public class Render {
 					: minTime < now - 8 * hourMs ? Color.GRAY
 					: Color.GREEN;
 
-			// inflate 0.01 to show above barrel without z fighting
-			var aabb = new AABB(pos.block()).inflate(0.01);
-
-			//? if >=1.21.11 {
-			renderFilledBox(matrices, consumers, aabb, color, 0.3f, false);
-			//?} else if >=1.21.6 {
-			/*renderFilledBox(matrices, consumers, aabb, color, 0.3f);
-			*///?} else {
-			/*renderFilledBox(aabb, color, 0.3f);
-			*///?}
-			drew.add(pos);
+			if (container == null) continue;
+			depthTestedBoxes.add(container.highlightBox(), color);
+			markDrawn(container);
 		}
-		//? if <1.21.6 {
-		/*RenderSystem.disableDepthTest();
-		*///?}
 
 		// Render search results - prefer upstream's lastSearchResult if available
 		// For 1.21.11+: render through walls using NO_DEPTH_TEST pipeline
@@ -247,132 +269,85 @@ public class Render {
 		// For <1.21.6: render through walls using RenderSystem.disableDepthTest()
 		var searchResult = mod.highlightManager.searchSource.getSearchResult();
 		if (searchResult != null && searchResult.ts > now - hourMs) {
-			//? if >=1.21.11 {
-			// Use a separate BufferSource for blue boxes so we fully control the flush
-			// and our custom NO_DEPTH_TEST pipeline is properly applied.
-			var blueBuffer = new ByteBufferBuilder(1024);
-			try {
-				var blueConsumers = MultiBufferSource.immediate(blueBuffer);
-				for (var exchange : searchResult.exchanges) {
-					if (drew.contains(exchange.pos)) continue; // multiple results in same container
-					if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-					// inflate 0.01 to show above barrel without z fighting
-					var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-					renderFilledBox(matrices, blueConsumers, aabb, Color.LIGHTBLUE, 0.3f, true);
-					drew.add(exchange.pos);
-				}
-				// Flush and close our dedicated buffer - this is what actually draws with our pipeline
-				((MultiBufferSource.BufferSource) blueConsumers).endBatch();
-			} finally {
-				blueBuffer.close();
-			}
-			//?} else if >=1.21.6 {
-			/*// For 1.21.6-1.21.10: render with depth testing (blocked by walls)
-			// Dot overlay (OverlayRender) shows positions through walls
-			for (var exchange : searchResult.exchanges) {
-				if (drew.contains(exchange.pos)) continue;
-				if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-				var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-				renderFilledBox(matrices, consumers, aabb, Color.LIGHTBLUE, 0.3f);
-				drew.add(exchange.pos);
-			}
-			*///?} else {
-			/*// For versions below 1.21.6, render search results
-			// Global depth disable makes them work through walls
-			for (var exchange : searchResult.exchanges) {
-				if (drew.contains(exchange.pos)) continue; // multiple results in same container
-				if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-				// inflate 0.01 to show above barrel without z fighting
-				var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-				renderFilledBox(aabb, Color.LIGHTBLUE, 0.3f);
-				drew.add(exchange.pos);
+			exchangesInRange.clear();
+			mod.highlightManager.searchSource.collectExchangesWithin(playerPos, range, now, exchangesInRange);
+			for (int i = 0; i < exchangesInRange.size(); i++) {
+				var exchange = exchangesInRange.get(i);
+				if (!markDrawn(exchange)) continue; // multiple results in same container
+				throughBlocksBoxes.add(exchange.highlightBox(), Color.LIGHTBLUE);
 			}
-			*///?}
 		} else {
 			// Fallback: use HighlightSource (from WIP)
-			var searchPositions = mod.highlightManager.searchSource.getActivePositions(
-				mod.getPlayerPos(), now, pos -> pos.block().distSqr(mc.player.blockPosition()) <= range * range
-			);
-			for (Pos pos : searchPositions) {
-				if (drew.contains(pos)) continue; // multiple results in same container
-				// inflate 0.01 to show above barrel without z fighting
-				var aabb = new AABB(pos.block()).inflate(0.01);
+			positionsInRange.clear();
+			mod.highlightManager.searchSource.collectPositionsWithin(playerPos, range, now, positionsInRange);
+			for (int i = 0; i < positionsInRange.size(); i++) {
+				var pos = positionsInRange.get(i);
+				if (!drew.add(pos.key())) continue; // multiple results in same container
 				//? if >=1.21.11 {
-				renderFilledBox(matrices, consumers, aabb, Color.LIGHTBLUE, 0.3f, false);
-				//?} else if >=1.21.6 {
-				/*renderFilledBox(matrices, consumers, aabb, Color.LIGHTBLUE, 0.3f);
-				*///?} else {
-				/*renderFilledBox(aabb, Color.LIGHTBLUE, 0.3f);
+				depthTestedBoxes.add(pos.highlightBox(), Color.LIGHTBLUE);
+				//?} else {
+				/*throughBlocksBoxes.add(pos.highlightBox(), Color.LIGHTBLUE);
 				*///?}
-				drew.add(pos);
 			}
 		}
 
 		// Render nearby exchanges (highlighted with the "Highlight Nearby" button)
 		// Only render if not already rendered above (for backwards compatibility)
-		// For 1.21.11+: render through walls using NO_DEPTH_TEST pipeline
-		// For 1.21.6-1.21.10: render with depth testing (blocked by walls), dot overlay shows positions
-		// For <1.21.6: render through walls using RenderSystem.disableDepthTest()
-		if (!nearbyActive) {
-			var nearbyResult = mod.highlightManager.nearbySource.getSearchResult();
-			if (nearbyResult != null && nearbyResult.ts > now - hourMs) {
-				//? if >=1.21.11 {
-				// Use a separate BufferSource for nearby boxes so we fully control the flush
-				var nearbyBuffer = new ByteBufferBuilder(1024);
-				try {
-					var nearbyConsumers = MultiBufferSource.immediate(nearbyBuffer);
-					for (var exchange : nearbyResult.exchanges) {
-						if (drew.contains(exchange.pos)) continue; // already drawn from other sources
-						if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-
-						// Determine color based on stock and update time
-						// Out of stock = RED, outdated (> 1 week) = ORANGE, recent & stocked = green-blue mixture
-						var color = exchange.stock <= 0 ? Color.RED
-								: exchange.time < now - Utils.weekMs ? Color.ORANGE
-								: new Color(0, 1f, 0.5f);
-
-						// inflate 0.01 to show above barrel without z fighting
-						var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-						renderFilledBox(matrices, nearbyConsumers, aabb, color, 0.3f, true);
-						drew.add(exchange.pos);
-					}
-					// Flush and close our dedicated buffer
-					((MultiBufferSource.BufferSource) nearbyConsumers).endBatch();
-				} finally {
-					nearbyBuffer.close();
-				}
-				//?} else if >=1.21.6 {
-				/*// For 1.21.6-1.21.10: render with depth testing (blocked by walls)
-				// Dot overlay (OverlayRender) shows positions through walls
-				for (var exchange : nearbyResult.exchanges) {
-					if (drew.contains(exchange.pos)) continue; // already drawn from other sources
-					if (exchange.pos.block().distSqr(mc.player.blockPosition()) > range * range) continue;
-
-					// Determine color based on stock and update time
-					// Out of stock = RED, outdated (> 1 week) = ORANGE, recent & stocked = green-blue mixture
-					var color = exchange.stock <= 0 ? Color.RED
-							: exchange.time < now - Utils.weekMs ? Color.ORANGE
-							: new Color(0, 1f, 0.5f);
-
-					// inflate 0.01 to show above barrel without z fighting
-					var aabb = new AABB(exchange.pos.block()).inflate(0.01);
-					renderFilledBox(matrices, consumers, aabb, color, 0.3f);
-					drew.add(exchange.pos);
-				}
-				*///?}
-			}
-		}
+		if (!nearbyActive) addNearbyBoxes(playerPos, range, now);
 
+		builtPlayerPos = playerPos;
+		builtMinute = now / 60_000;
+		builtExploredVersion = mod.highlightManager.exploredSource.getVersion();
+		builtSearchVersion = mod.highlightManager.searchSource.getVersion();
+		builtNearbyVersion = mod.highlightManager.nearbySource.getVersion();
+	}
 
+	private static void addNearbyBoxes(@NotNull Pos playerPos, int range, long now) {
 		//? if >=1.21.6 {
-		matrices.popPose();
-		//?} else {
-		/*// cleanup
-		RenderSystem.enableDepthTest();
-		RenderSystem.depthMask(true);
+		var nearbyResult = mod.highlightManager.nearbySource.getSearchResult();
+		if (nearbyResult == null || nearbyResult.ts <= now - 3600_000) return;
+		exchangesInRange.clear();
+		mod.highlightManager.nearbySource.collectExchangesWithin(playerPos, range, now, exchangesInRange);
+		for (int i = 0; i < exchangesInRange.size(); i++) {
+			var exchange = exchangesInRange.get(i);
+			if (!markDrawn(exchange)) continue; // already drawn from other sources
+			throughBlocksBoxes.add(exchange.highlightBox(), nearbyColor(exchange, now));
+		}
+		//?}
+	}
 
-		modelViewStack.popMatrix();
-		*///?}
+	/**
+	 * Both halves of a double chest count as drawn, so old results stored under the other half are skipped.
+	 * @return false if the container was already drawn
+	 */
+	private static boolean markDrawn(@NotNull Exchange exchange) {
+		if (!drew.add(exchange.pos.key())) return false;
+		var adjacentPos = exchange.getAdjacentPos();
+		if (adjacentPos != null) drew.add(adjacentPos.key());
+		return true;
+	}
+
+	/**
+	 * Out of stock = RED, outdated (> 1 week) = ORANGE, recent & stocked = green-blue mixture
+	 */
+	private static Color nearbyColor(@NotNull Exchange exchange, long now) {
+		return exchange.stock <= 0 ? Color.RED
+				: exchange.time < now - Utils.weekMs ? Color.ORANGE
+				: Color.SPRING_GREEN;
+	}
+
+	/**
+	 * Reuses the previous frame's position until the player moves to another block.
+	 */
+	private static @NotNull Pos getPlayerPos() {
+		var p = mc.player.blockPosition();
+		var pos = lastPlayerPos;
+		if (pos == null || pos.x != p.getX() || pos.y != p.getY() || pos.z != p.getZ()
+				|| !pos.world.equals(mod.getCurrentWorldName())
+				|| !pos.server.equals(mod.getCurrentServerName())) {
+			pos = lastPlayerPos = mod.getPlayerPos();
+		}
+		return pos;
 	}
 
 	record Color(float r, float g, float b) {
@@ -380,6 +355,7 @@ public class Render {
 		public static final Color GRAY = new Color(.5f, .5f, .5f);
 		public static final Color RED = new Color(1, 0, 0);
 		public static final Color GREEN = new Color(0, 1, 0);
+		public static final Color SPRING_GREEN = new Color(0, 1, .5f);
 		public static final Color BLUE = new Color(0, 0, 1);
 		public static final Color LIGHTBLUE = new Color(0, 1, 1);
 		public static final Color YELLOW = new Color(1, 1, 0);
@@ -387,65 +363,102 @@ public class Render {
 		public static final Color MAGENTA = new Color(1, 0, 1);
 	}
 
+	/**
+	 * Flat array of box bounds and colors, kept between frames and replayed until the highlights change.
+	 */
+	private static class BoxList {
+		static final int STRIDE = 9; // minX, minY, minZ, maxX, maxY, maxZ, r, g, b
+		float[] data = new float[STRIDE * 64];
+		int size = 0;
+
+		void clear() {
+			size = 0;
+		}
+
+		void add(AABB box, Color color) {
+			int i = size * STRIDE;
+			if (i + STRIDE > data.length) data = Arrays.copyOf(data, data.length * 2);
+			data[i] = (float) box.minX;
+			data[i + 1] = (float) box.minY;
+			data[i + 2] = (float) box.minZ;
+			data[i + 3] = (float) box.maxX;
+			data[i + 4] = (float) box.maxY;
+			data[i + 5] = (float) box.maxZ;
+			data[i + 6] = color.r;
+			data[i + 7] = color.g;
+			data[i + 8] = color.b;
+			size++;
+		}
+	}
+
 	//? if >=1.21.6 {
 	/**
-	 * Renders a filled box using the 1.21.6+ rendering API.
+	 * Renders filled boxes using the 1.21.6+ rendering API, batched into one buffer per render type.
 	 */
 	//? if >=1.21.11 {
-	private static void renderFilledBox(PoseStack matrices, MultiBufferSource consumers, AABB box, Color color, float alpha, boolean throughBlocks) {
+	private static void renderBoxes(PoseStack matrices, MultiBufferSource consumers, BoxList boxes, boolean throughBlocks) {
 	//?} else {
-	/*private static void renderFilledBox(PoseStack matrices, MultiBufferSource consumers, AABB box, Color color, float alpha) {
-	boolean throughBlocks = false;
+	/*private static void renderBoxes(PoseStack matrices, MultiBufferSource consumers, BoxList boxes) {
 	*///?}
+		if (boxes.size == 0) return;
+		final float a = BOX_ALPHA;
+		final float[] d = boxes.data;
 		//? if >=1.21.11 {
 		VertexConsumer vc = consumers.getBuffer(throughBlocks ? getNoDepthFilledBox() : RenderTypes.debugFilledBox());
 		PoseStack.Pose pose = matrices.last();
-		float r = color.r, g = color.g, b = color.b, a = alpha;
-		float minX = (float) box.minX, minY = (float) box.minY, minZ = (float) box.minZ;
-		float maxX = (float) box.maxX, maxY = (float) box.maxY, maxZ = (float) box.maxZ;
-		// Bottom face (y = minY)
-		vc.addVertex(pose, minX, minY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, minY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, minY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, minY, maxZ).setColor(r, g, b, a);
-		// Top face (y = maxY)
-		vc.addVertex(pose, minX, maxY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, maxY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, maxY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, maxY, minZ).setColor(r, g, b, a);
-		// Front face (z = minZ)
-		vc.addVertex(pose, minX, minY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, maxY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, maxY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, minY, minZ).setColor(r, g, b, a);
-		// Back face (z = maxZ)
-		vc.addVertex(pose, minX, minY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, minY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, maxY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, maxY, maxZ).setColor(r, g, b, a);
-		// Left face (x = minX)
-		vc.addVertex(pose, minX, minY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, minY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, maxY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, minX, maxY, minZ).setColor(r, g, b, a);
-		// Right face (x = maxX)
-		vc.addVertex(pose, maxX, minY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, maxY, minZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, maxY, maxZ).setColor(r, g, b, a);
-		vc.addVertex(pose, maxX, minY, maxZ).setColor(r, g, b, a);
+		for (int i = 0; i < boxes.size * BoxList.STRIDE; i += BoxList.STRIDE) {
+			float minX = d[i], minY = d[i + 1], minZ = d[i + 2];
+			float maxX = d[i + 3], maxY = d[i + 4], maxZ = d[i + 5];
+			float r = d[i + 6], g = d[i + 7], b = d[i + 8];
+			// Bottom face (y = minY)
+			vc.addVertex(pose, minX, minY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, minY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, minY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, minY, maxZ).setColor(r, g, b, a);
+			// Top face (y = maxY)
+			vc.addVertex(pose, minX, maxY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, maxY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, maxY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, maxY, minZ).setColor(r, g, b, a);
+			// Front face (z = minZ)
+			vc.addVertex(pose, minX, minY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, maxY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, maxY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, minY, minZ).setColor(r, g, b, a);
+			// Back face (z = maxZ)
+			vc.addVertex(pose, minX, minY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, minY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, maxY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, maxY, maxZ).setColor(r, g, b, a);
+			// Left face (x = minX)
+			vc.addVertex(pose, minX, minY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, minY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, maxY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, minX, maxY, minZ).setColor(r, g, b, a);
+			// Right face (x = maxX)
+			vc.addVertex(pose, maxX, minY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, maxY, minZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, maxY, maxZ).setColor(r, g, b, a);
+			vc.addVertex(pose, maxX, minY, maxZ).setColor(r, g, b, a);
+		}
 		//?} else {
 		/*VertexConsumer vertexConsumer = consumers.getBuffer(RenderType.debugFilledBox());
-		ShapeRenderer.addChainedFilledBoxVertices(
-				matrices,
-				vertexConsumer,
-				box.minX, box.minY, box.minZ,
-				box.maxX, box.maxY, box.maxZ,
-				color.r, color.g, color.b, alpha
-		);
+		for (int i = 0; i < boxes.size * BoxList.STRIDE; i += BoxList.STRIDE) {
+			ShapeRenderer.addChainedFilledBoxVertices(
+					matrices,
+					vertexConsumer,
+					d[i], d[i + 1], d[i + 2],
+					d[i + 3], d[i + 4], d[i + 5],
+					d[i + 6], d[i + 7], d[i + 8], a
+			);
+		}
 		*///?}
 	}
 	//?} else {
-	/*private static void renderFilledBox(AABB box, Color color, float a) {
+	/*// All boxes go into one triangle strip (the repeated first and last vertices
+	// of each box form degenerate triangles), so they are drawn with a single call.
+	private static void renderBoxes(BoxList boxes) {
+		if (boxes.size == 0) return;
 		Tesselator tesselator = Tesselator.getInstance();
 		BufferBuilder bufferBuilder = tesselator.begin(VertexFormat.Mode.TRIANGLE_STRIP, DefaultVertexFormat.POSITION_COLOR);
 
@@ -455,46 +468,50 @@ public class Render {
 		RenderSystem.setShader(net.minecraft.client.renderer.CoreShaders.POSITION_COLOR);
 		//?}
 
-		float r = color.r;
-		float g = color.g;
-		float b = color.b;
-		float minX = (float) box.minX;
-		float minY = (float) box.minY;
-		float minZ = (float) box.minZ;
-		float maxX = (float) box.maxX;
-		float maxY = (float) box.maxY;
-		float maxZ = (float) box.maxZ;
-
-		bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(minX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, minZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
-		bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
+		final float a = BOX_ALPHA;
+		final float[] d = boxes.data;
+		for (int i = 0; i < boxes.size * BoxList.STRIDE; i += BoxList.STRIDE) {
+			float minX = d[i];
+			float minY = d[i + 1];
+			float minZ = d[i + 2];
+			float maxX = d[i + 3];
+			float maxY = d[i + 4];
+			float maxZ = d[i + 5];
+			float r = d[i + 6];
+			float g = d[i + 7];
+			float b = d[i + 8];
+
+			bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, minY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(minX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, minZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
+			bufferBuilder.addVertex(maxX, maxY, maxZ).setColor(r, g, b, a);
+		}
 
 		BufferUploader.drawWithShader(bufferBuilder.buildOrThrow());
 	}
@@ -0,0 +1,194 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.gui.*;
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.network.chat.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static io.github.gjum.mc.gui.Label.Alignment.*;
+import static io.github.gjum.mc.gui.Vec2.Direction.HORIZONTAL;
+import static io.github.gjum.mc.gui.Vec2.Direction.VERTICAL;
+import static io.github.gjum.mc.tradex.TradexMod.mod;
+import static io.github.gjum.mc.tradex.Utils.*;
+import static net.minecraft.ChatFormatting.*;
+
+/**
+ * Trade routes over all exchanges seen so far: the best chain from one item to another, or profitable cycles.
+ */
+public class RouteGui extends GuiRoot {
+	private static final int[] MAX_DISTANCES = {0, 500, 1000, 5000};
+
+	public String fromQuery = "";
+	public String toQuery = "";
+	public int maxDistance = 0;
+	private @NotNull List<TradeRoutes.Route> routes = List.of();
+	private @NotNull String status = "Find the best chain of trades between two items, or trade cycles that gain items.";
+	private @Nullable CompletableFuture<?> pending;
+	/**
+	 * Incremented for each search, so results of an older search that finish late are dropped.
+	 */
+	private int searchSeq = 0;
+
+	public RouteGui(Screen parent) {
+		super(parent, Component.literal("Tradex: Trade routes"));
+	}
+
+	private void findRoute() {
+		if (fromQuery.isBlank() || toQuery.isBlank()) {
+			showRoutes(List.of(), "Enter what you have and what you want.");
+			return;
+		}
+		status = "Searching ...";
+		rebuild();
+		if (pending != null) pending.cancel(true);
+		final int seq = ++searchSeq;
+		final String from = fromQuery, to = toQuery;
+		pending = mod.tradeRoutes.findPath(from, to, mod.getPlayerPos(), maxDistance)
+				.thenAccept(route -> mc.execute(() -> {
+					if (seq != searchSeq) return;
+					if (route == null) showRoutes(List.of(), "No known trades from " + from + " to " + to + ".");
+					else showRoutes(List.of(route), "Best route:");
+				}))
+				.exceptionally(e -> handleFailure(seq, e));
+	}
+
+	private void findCycles() {
+		status = "Searching ...";
+		rebuild();
+		if (pending != null) pending.cancel(true);
+		final int seq = ++searchSeq;
+		pending = mod.tradeRoutes.findCycles(mod.getPlayerPos(), maxDistance, 20)
+				.thenAccept(cycles -> mc.execute(() -> {
+					if (seq != searchSeq) return;
+					if (cycles.isEmpty()) showRoutes(cycles, "No profitable trade cycles among known exchanges.");
+					else showRoutes(cycles, "Found " + cycles.size() + " trade cycles:");
+				}))
+				.exceptionally(e -> handleFailure(seq, e));
+	}
+
+	private Void handleFailure(int seq, Throwable e) {
+		e.printStackTrace();
+		mc.execute(() -> {
+			// also when cancelled by a newer search
+			if (seq != searchSeq) return;
+			showRoutes(List.of(), "Error: " + e.getMessage());
+		});
+		return null;
+	}
+
+	private void showRoutes(@NotNull List<TradeRoutes.Route> routes, @NotNull String status) {
+		this.routes = routes;
+		this.status = status;
+		rebuild();
+	}
+
+	@Override
+	public void onClose() {
+		searchSeq++;
+		if (pending != null) pending.cancel(true);
+		super.onClose();
+	}
+
+	@Override
+	public GuiElement build() {
+		final Vec2 spacer = new Vec2(7, 7);
+		final TextField fromTextField = new TextField(s -> {
+			fromQuery = s;
+			return true;
+		}, fromQuery, "diamond, ...");
+		final TextField toTextField = new TextField(s -> {
+			toQuery = s;
+			return true;
+		}, toQuery, "exp, iron, ...");
+
+		fromTextField.setFocused(true);
+
+		var maxTextFieldSize = new Vec2(200, 20);
+
+		final var routeControls = new FlexListLayout(HORIZONTAL)
+				.add(new Spacer())
+				.add(new Label("I have: ").align(ALIGN_RIGHT).setHeight(20))
+				.add(fromTextField.setWeight(new Vec2(999, 0)).setMaxSize(maxTextFieldSize))
+				.add(new Spacer())
+				.add(new Label("I want: ").align(ALIGN_RIGHT).setHeight(20))
+				.add(toTextField.setWeight(new Vec2(999, 0)).setMaxSize(maxTextFieldSize))
+				.add(new Spacer());
+
+		final var searchControls = new FlexListLayout(HORIZONTAL)
+				.add(new Spacer())
+				.add(new Button("Find route").onClick(btn -> findRoute()))
+				.add(new Spacer())
+				.add(new Button("Find cycles").onClick(btn -> findCycles()))
+				.add(new Spacer())
+				.add(new Label("Max distance: ").align(ALIGN_RIGHT).setHeight(20))
+				.add(new Button(getMaxDistanceText()).onBtnClick(b -> {
+					int i = 0;
+					while (i < MAX_DISTANCES.length && MAX_DISTANCES[i] != maxDistance) i++;
+					maxDistance = MAX_DISTANCES[(i + 1) % MAX_DISTANCES.length];
+					b.setText(Component.literal(getMaxDistanceText()));
+				}))
+				.add(new Spacer());
+
+		final String world = mod.getCurrentWorldName();
+		final VirtualList<TradeRoutes.Route> routesList = new VirtualList<TradeRoutes.Route>(
+				9 * (TradeRoutes.MAX_HOPS + 1), 5, route -> List.of(
+				new Spacer(new Vec2(spacer.x, 0)),
+				buildRouteCol(world, route)))
+				.setColumnWeight(1, 1);
+		routesList.addItems(routes);
+
+		final ScrollBox scroller = new ScrollBox(routesList);
+		scroller.setWeight(new Vec2(Vec2.LARGE, Vec2.LARGE));
+
+		final FlexListLayout bottomControls = new FlexListLayout(HORIZONTAL);
+		bottomControls.add(new Button("Back to search").onClick((btn) -> {
+			mc.setScreen(new SearchGui(parentScreen));
+		}));
+
+		bottomControls.add(new Spacer());
+
+		bottomControls.add(new Button("Close").onClick((btn) -> {
+			mc.setScreen(parentScreen);
+		}));
+
+		final FlexListLayout content = new FlexListLayout(VERTICAL);
+		content.add(new Spacer(spacer));
+		content.add(new Label("Tradex: Trade Routes").align(ALIGN_CENTER));
+		content.add(new Spacer(spacer));
+		content.add(routeControls);
+		content.add(searchControls);
+		content.add(new Spacer(spacer));
+		content.add(new Label(status).align(ALIGN_CENTER));
+		content.add(new Spacer(spacer));
+		content.add(scroller);
+		content.add(new Spacer(spacer));
+		content.add(bottomControls);
+
+		return content;
+	}
+
+	private @NotNull String getMaxDistanceText() {
+		return maxDistance <= 0 ? "Any" : distanceToText(maxDistance);
+	}
+
+	private static @NotNull FlexListLayout buildRouteCol(@Nullable String world, @NotNull TradeRoutes.Route route) {
+		final FlexListLayout col = new FlexListLayout(VERTICAL);
+		int lineHeight = 9;
+		col.add(new Label(route.describe()).align(ALIGN_LEFT).setHeight(lineHeight));
+		for (Exchange step : route.steps()) {
+			String loc = step.pos.toString();
+			if (!step.pos.world.equals(world)) loc += " " + step.pos.world;
+			col.add(new Label("%s%s: %s%d %s -> %d %s".formatted(GRAY, loc, WHITE,
+					step.input.count, SearchQuery.getSpecForRule(step.input),
+					step.output.count, SearchQuery.getSpecForRule(step.output)))
+					.align(ALIGN_LEFT).setHeight(lineHeight));
+		}
+		return col;
+	}
+}
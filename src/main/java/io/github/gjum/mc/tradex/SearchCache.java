@@ -0,0 +1,121 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.api.Exchanges;
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recent remote search results, so re-sorting or re-filtering can show results right away
+ * while a fresh result is fetched in the background (stale-while-revalidate).
+ * Keyed by the parts of the query that change what the server returns, excluding the sort mode,
+ * which is applied client-side. Thread-safe.
+ */
+public class SearchCache {
+	/**
+	 * Results younger than this are served without asking the server again,
+	 * unless they were fetched for a different sort mode.
+	 */
+	private static final long FRESH_MS = 30_000;
+	/**
+	 * Results older than this are not shown at all.
+	 */
+	private static final long MAX_AGE_MS = 10 * 60_000;
+	private static final int MAX_ENTRIES = 32;
+	/**
+	 * Positions are rounded to this many blocks, so walking around doesn't invalidate the cache.
+	 */
+	private static final int POS_BUCKET_BITS = 5;
+	/**
+	 * {@link SearchQuery#updatedAfter} is derived from the current time; round it so it stays stable.
+	 */
+	private static final long UPDATED_AFTER_BUCKET_MS = 60 * 60_000;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	record Key(
+			@NotNull String input,
+			@NotNull String output,
+			@Nullable String server,
+			@Nullable String world,
+			int bucketX,
+			int bucketZ,
+			long updatedAfterBucket,
+			boolean allowUnstocked,
+			int limit
+	) {
+		static Key of(@NotNull SearchQuery query) {
+			var pos = query.pos;
+			return new Key(
+					normalize(query.input),
+					normalize(query.output),
+					pos == null ? null : pos.server,
+					pos == null ? null : pos.world,
+					pos == null ? 0 : pos.x >> POS_BUCKET_BITS,
+					pos == null ? 0 : pos.z >> POS_BUCKET_BITS,
+					query.updatedAfter / UPDATED_AFTER_BUCKET_MS,
+					query.allowUnstocked,
+					query.limit);
+		}
+
+		private static @NotNull String normalize(@Nullable String text) {
+			if (text == null) return "";
+			return text.trim().replaceAll("\\s+", " ").toLowerCase();
+		}
+	}
+
+	private record Entry(@NotNull Exchanges.SearchResult result, @Nullable String sortMode, long fetchedAt) {}
+
+	/**
+	 * @return the cached result for this query, sorted for its sort mode, or null if none or expired
+	 */
+	public @Nullable Exchanges.SearchResult get(@NotNull SearchQuery query) {
+		final Entry entry;
+		synchronized (this) {
+			entry = entries.get(Key.of(query));
+		}
+		if (entry == null || System.currentTimeMillis() - entry.fetchedAt > MAX_AGE_MS) return null;
+		var exchanges = new ArrayList<>(entry.result.exchanges);
+		exchanges.sort(Exchanges.comparator(query));
+		var result = new Exchanges.SearchResult(exchanges);
+		result.ts = entry.result.ts;
+		result.nextCursor = entry.result.nextCursor;
+		return result;
+	}
+
+	/**
+	 * @return true if the cached result is recent and was fetched for the same sort mode,
+	 * so the server would return the same exchanges
+	 */
+	public boolean isFresh(@NotNull SearchQuery query) {
+		final Entry entry;
+		synchronized (this) {
+			entry = entries.get(Key.of(query));
+		}
+		if (entry == null) return false;
+		if (System.currentTimeMillis() - entry.fetchedAt > FRESH_MS) return false;
+		return Objects.equals(entry.sortMode, query.sortMode);
+	}
+
+	public void put(@NotNull SearchQuery query, @Nullable Exchanges.SearchResult result) {
+		if (result == null) return;
+		var entry = new Entry(result, query.sortMode, System.currentTimeMillis());
+		synchronized (this) {
+			entries.put(Key.of(query), entry);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+}
@@ -14,6 +14,7 @@ import org.jetbrains.annotations.Nullable;
 import org.lwjgl.glfw.GLFW;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static io.github.gjum.mc.tradex.TradexMod.mod;
@@ -45,6 +46,10 @@ public class SearchGui extends GuiRoot {
 	public SortMode sortMode = SortMode.closest;
 	public @Nullable Exchanges.SearchResult searchResult;
 	private @Nullable String searchError;
+	/**
+	 * True while only local results are shown and the remote search is still running.
+	 */
+	private boolean remotePending = false;
 
 	// Strict search mode for output filter
 	// When true: only matches exact material names (e.g., "sand" matches only "sand", not "sandstone")
@@ -62,8 +67,47 @@ public class SearchGui extends GuiRoot {
 	// Empty query + restrictive = unenchanted items only
 	public boolean restrictiveEnchants = false;
 
-	// Guard to prevent concurrent searches
-	private boolean isSearching = false;
+	/**
+	 * Wait this long after the last keystroke before searching.
+	 */
+	private static final long TYPE_AHEAD_DELAY_MS = 250;
+	/**
+	 * When the next type-ahead search should run, or 0 if none is scheduled.
+	 */
+	private long searchDueAt = 0;
+	/**
+	 * Incremented for every search, so responses to older searches can be ignored.
+	 */
+	private int searchSeq = 0;
+	private @Nullable CompletableFuture<?> pendingSearch;
+
+	/**
+	 * Stop loading more pages once this many results are shown.
+	 * The API has no cursors and sends all results before a page again,
+	 * so everything after the first page is fetched in one request, see {@link #loadNextPage}.
+	 */
+	private static final int MAX_RESULTS = 1000;
+	/**
+	 * Load the next page when scrolled this close (in pixels) to the end of the results.
+	 */
+	private static final int LOAD_MORE_DISTANCE = 200;
+	private @Nullable SearchQuery pageQuery;
+	/**
+	 * See {@link Exchanges.SearchResult#nextCursor}. -1 if there are no more pages.
+	 */
+	private int nextPageCursor = -1;
+	private @Nullable CompletableFuture<?> pendingPage;
+	/**
+	 * Elements of the current build, so results and controls can be updated without rebuilding the screen.
+	 */
+	private @Nullable VirtualList<Exchange> resultsList;
+	private @Nullable ScrollBox resultsScroller;
+	private @Nullable Label statusLabel;
+	private @Nullable Label priceLabel;
+	private final EnumMap<SortMode, Button> sortButtons = new EnumMap<>(SortMode.class);
+	private final EnumMap<EnchantFilterMode, Button> enchantModeButtons = new EnumMap<>(EnchantFilterMode.class);
+	private @Nullable TextField enchantTextField;
+	private @Nullable Button restrictiveEnchantsButton;
 
 	public Button searchButton = new Button("Search").onClick(btn -> performSearch());
 
@@ -87,16 +131,36 @@ public class SearchGui extends GuiRoot {
 		performSearch();
 	}
 
-	public void performSearch() {
-		// Prevent concurrent searches that cause "too many streams" errors
-		if (isSearching) return;
-		isSearching = true;
+	/**
+	 * Search once the user stopped typing for a moment.
+	 */
+	public void scheduleSearch() {
+		searchDueAt = System.currentTimeMillis() + TYPE_AHEAD_DELAY_MS;
+	}
+
+	@Override
+	public void tick() {
+		super.tick();
+		if (searchDueAt != 0 && System.currentTimeMillis() >= searchDueAt) {
+			performSearch();
+		}
+	}
 
+	/**
+	 * Start a new search, replacing any running one. Only the newest search's result is shown.
+	 */
+	public void performSearch() {
+		searchDueAt = 0;
 		mc.doRunTask(() -> {
+			final int seq = ++searchSeq;
+			if (pendingSearch != null) pendingSearch.cancel(true);
+			pendingSearch = null;
+			if (pendingPage != null) pendingPage.cancel(true);
+			pendingPage = null;
+			nextPageCursor = -1;
 			searchResult = null;
 			searchError = null;
 			searchButton.setEnabled(false);
-			rebuild();
 			int limit = 20;
 			if (!inputQuery.isEmpty() || !outputQuery.isEmpty()) limit = 100;
 			final long updatedAfter = System.currentTimeMillis() - monthMs;
@@ -106,20 +170,63 @@ public class SearchGui extends GuiRoot {
 					mod.getPlayerPos(),
 					updatedAfter, allowUnstocked, limit, sortMode.name()
 			);
-			Exchanges.search(query)
-					.thenAccept(result -> {
-						isSearching = false;
-						// Apply both enchant filter and strict search filter
-						var filteredResult = applyClientSideEnchantFilter(result);
-						filteredResult = applyStrictSearchFilter(filteredResult);
-						displaySearchResults(filteredResult);
+			pageQuery = query;
+
+			// show locally known and cached exchanges as soon as the local search is done, the remote result is merged in when it arrives
+			final var cachedResult = mod.searchCache.get(query);
+			// the server would return the same, e.g. when only a client-side filter changed
+			final boolean cacheFresh = cachedResult != null && mod.searchCache.isFresh(query);
+			remotePending = !cacheFresh;
+			showResults();
+
+			final var localShown = mod.localSearch.searchAsync(query)
+					.exceptionally(e -> {
+						e.printStackTrace();
+						return new Exchanges.SearchResult(new ArrayList<>());
+					})
+					// completes after the local result is shown, so it can't replace the remote one
+					.thenApplyAsync(localResult -> {
+						if (seq != searchSeq) return localResult;
+						final var initialResult = LocalSearch.merge(query, localResult, cachedResult);
+						if (!initialResult.exchanges.isEmpty()) {
+							searchResult = applyStrictSearchFilter(applyClientSideEnchantFilter(initialResult));
+						}
+						if (cacheFresh) {
+							nextPageCursor = cachedResult.nextCursor;
+							searchButton.setEnabled(true);
+						}
+						showResults();
+						return localResult;
+					}, mc);
+			if (cacheFresh) return;
+
+			final var search = Exchanges.search(query);
+			pendingSearch = search;
+			search
+					.thenAcceptBoth(localShown, (result, localResult) -> {
+						mod.searchCache.put(query, result);
+						mod.localSearch.remember(result);
+						mod.indexExchanges(result.exchanges);
+						mc.execute(() -> {
+							if (seq != searchSeq) return; // superseded by a newer search
+							pendingSearch = null;
+							nextPageCursor = result.nextCursor;
+							var merged = LocalSearch.merge(query, localResult, result);
+							// Apply both enchant filter and strict search filter
+							var filteredResult = applyClientSideEnchantFilter(merged);
+							filteredResult = applyStrictSearchFilter(filteredResult);
+							displaySearchResults(filteredResult);
+						});
 					})
 					.exceptionally(e -> {
-						isSearching = false;
-						mc.doRunTask(() -> {
+						mc.execute(() -> {
+							// also when cancelled by a newer search
+							if (seq != searchSeq) return;
+							pendingSearch = null;
+							remotePending = false;
 							searchError = e.getMessage();
 							searchButton.setEnabled(true);
-							rebuild();
+							showResults();
 						});
 						return null;
 					})
@@ -127,6 +234,82 @@ public class SearchGui extends GuiRoot {
 		});
 	}
 
+	/**
+	 * Fetch the remaining results of the current search up to {@link #MAX_RESULTS}, and merge them into the shown results.
+	 */
+	private void loadNextPage() {
+		if (nextPageCursor < 0 || pendingPage != null || pageQuery == null || searchResult == null) return;
+		if (searchResult.exchanges.size() >= MAX_RESULTS || nextPageCursor >= MAX_RESULTS) return;
+		final int seq = searchSeq;
+		final var query = pageQuery;
+		final var page = Exchanges.searchPage(query.withLimit(MAX_RESULTS - nextPageCursor), nextPageCursor);
+		pendingPage = page;
+		page
+				.thenAccept(result -> {
+					mod.localSearch.remember(result);
+					mod.indexExchanges(result.exchanges);
+					mc.execute(() -> {
+						if (seq != searchSeq) return;
+						pendingPage = null;
+						nextPageCursor = result.nextCursor;
+						appendSearchResults(query, result);
+					});
+				})
+				.exceptionally(e -> {
+					mc.execute(() -> {
+						if (seq != searchSeq) return;
+						pendingPage = null;
+						// don't retry on every scroll, the search button starts over
+						nextPageCursor = -1;
+					});
+					return null;
+				});
+	}
+
+	private void appendSearchResults(@NotNull SearchQuery query, @NotNull Exchanges.SearchResult page) {
+		if (searchResult == null) return;
+		var shown = new HashSet<ExchangeStore.Key>();
+		for (var exchange : searchResult.exchanges) shown.add(ExchangeStore.Key.of(exchange));
+		final var comparator = Exchanges.comparator(query);
+		var filtered = new ArrayList<>(applyStrictSearchFilter(applyClientSideEnchantFilter(page)).exchanges);
+		filtered.sort(comparator);
+		var added = new ArrayList<Exchange>();
+		for (var exchange : filtered) {
+			// pages may overlap if exchanges changed in between, or with locally known exchanges
+			if (shown.add(ExchangeStore.Key.of(exchange))) added.add(exchange);
+		}
+		// the server's order differs from the client-side sort (e.g. decompacted prices), so new results may go anywhere
+		final var old = searchResult.exchanges;
+		var exchanges = new ArrayList<Exchange>(old.size() + added.size());
+		int i = 0, j = 0;
+		while (i < old.size() && j < added.size()) {
+			if (comparator.compare(added.get(j), old.get(i)) < 0) exchanges.add(added.get(j++));
+			else exchanges.add(old.get(i++));
+		}
+		exchanges.addAll(old.subList(i, old.size()));
+		exchanges.addAll(added.subList(j, added.size()));
+		final boolean appended = j == 0;
+		var result = new Exchanges.SearchResult(exchanges);
+		result.ts = searchResult.ts;
+		searchResult = result;
+		if (resultsList != null) {
+			if (appended) resultsList.addItems(added);
+			else resultsList.clear().addItems(exchanges);
+		}
+		if (statusLabel != null) statusLabel.setText(getStatusText());
+		if (priceLabel != null) priceLabel.setText(getPriceText());
+		// the scroll box only asks again once the list grew
+		if (added.isEmpty()) loadNextPage();
+	}
+
+	@Override
+	public void onClose() {
+		searchDueAt = 0;
+		if (pendingSearch != null) pendingSearch.cancel(true);
+		if (pendingPage != null) pendingPage.cancel(true);
+		super.onClose();
+	}
+
 	/**
 	 * Parsed enchant filter with name and optional level constraint.
 	 */
@@ -343,12 +526,31 @@ public class SearchGui extends GuiRoot {
 		mc.doRunTask(() -> {
 			this.searchResult = result;
 			searchError = null;
-			rebuild();
+			remotePending = false;
+			// showResults keeps the text fields, so their callbacks do not enable it
+			searchButton.setEnabled(true);
+			showResults();
 		});
 	}
 
+	/**
+	 * Show the current results in the existing screen, only re-laying out the results.
+	 */
+	private void showResults() {
+		if (resultsList == null || resultsScroller == null || statusLabel == null || priceLabel == null) {
+			rebuild();
+			return;
+		}
+		statusLabel.setText(getStatusText());
+		priceLabel.setText(getPriceText());
+		resultsList.clear();
+		if (searchResult != null) resultsList.addItems(searchResult.exchanges);
+		resultsScroller.scrollToTop();
+	}
+
 	private void sortBy(SortMode mode) {
 		sortMode = mode;
+		sortButtons.forEach((buttonMode, button) -> button.setEnabled(buttonMode != sortMode));
 		performSearch();
 	}
 
@@ -382,11 +584,14 @@ public class SearchGui extends GuiRoot {
 	public GuiElement build() {
 		final Vec2 spacer = new Vec2(7, 7);
 		final TextField outputTextField = new TextField(s -> {
+			// also called when the field is (re)built, only search after edits
+			if (!s.equals(outputQuery)) scheduleSearch();
 			outputQuery = s;
 			searchButton.setEnabled(true);
 			return true;
 		}, outputQuery, "beacon, enchanted diamond pickaxe, ...");
 		final TextField inputTextField = new TextField(s -> {
+			if (!s.equals(inputQuery)) scheduleSearch();
 			inputQuery = s;
 			searchButton.setEnabled(true);
 			return true;
@@ -446,7 +651,8 @@ public class SearchGui extends GuiRoot {
 				.add(new Spacer());
 
 		// Enchantment filter controls
-		final TextField enchantTextField = new TextField(s -> {
+		enchantTextField = new TextField(s -> {
+			if (!s.equals(enchantQuery)) scheduleSearch();
 			enchantQuery = s;
 			searchButton.setEnabled(true);
 			return true;
@@ -461,7 +667,7 @@ public class SearchGui extends GuiRoot {
 				.add(enchantTextField.setWeight(new Vec2(999, 0)).setMaxSize(new Vec2(200, 20)))
 				.add(new Spacer(spacer))
 				.add(new Label("Only these: ").align(ALIGN_RIGHT).setHeight(20))
-				.add(new Button(restrictiveEnchants ? "Yes" : "No").onBtnClick(b -> {
+				.add(restrictiveEnchantsButton = new Button(restrictiveEnchants ? "Yes" : "No").onBtnClick(b -> {
 					if ("Yes".equals(b.getText().getString())) {
 						b.setText(Component.literal("No"));
 						restrictiveEnchants = false;
@@ -476,40 +682,31 @@ public class SearchGui extends GuiRoot {
 		// Show/hide enchant text field based on mode
 		enchantTextField.setEnabled(enchantFilterMode == EnchantFilterMode.SPECIFIC);
 
-		final Label statusLabel;
-		final TableLayout resultsTable = new TableLayout();
-		if (searchError != null) {
-			statusLabel = new Label("Error: " + searchError).align(ALIGN_CENTER);
-		} else if (searchResult == null) {
-			statusLabel = new Label("Searching ...").align(ALIGN_CENTER);
-		} else if (searchResult.exchanges.isEmpty()) {
-			if (inputTextField.getText().isEmpty() && outputTextField.getText().isEmpty()) {
-				statusLabel = new Label("Search for exchanges buying/selling certain items.").align(ALIGN_CENTER);
-			} else {
-				statusLabel = new Label("No exchanges found. Try a different item.").align(ALIGN_CENTER);
-			}
-			outputTextField.getTextField().setFocused(true);
-		} else {
-			String numResults = String.valueOf(searchResult.exchanges.size());
-			if (searchResult.exchanges.size() > 99) numResults = "99+";
-			statusLabel = new Label("Found " + numResults + " exchanges:").align(ALIGN_CENTER);
-			final String world = mod.getCurrentWorldName();
-			final Pos playerPos = mod.getPlayerPos();
-			final Vec2 resultsListSpacer = new Vec2(5, 5);
-			for (Exchange exchange : searchResult.exchanges) {
-				resultsTable.addRow(Collections.singletonList(new Spacer(resultsListSpacer)));
-
-				FlexListLayout metaCol = buildMetaCol(world, playerPos, exchange);
-				FlexListLayout inputCol = buildRuleCol("Input:", exchange.input);
-				FlexListLayout outputCol = buildRuleCol("Output:", exchange.output);
-
-				resultsTable.addRow(Arrays.asList(null, metaCol, inputCol, outputCol));
-			}
+		final String world = mod.getCurrentWorldName();
+		final Pos playerPos = mod.getPlayerPos();
+		// rows are only built while scrolled into view
+		final VirtualList<Exchange> resultsList = new VirtualList<Exchange>(45, 5, exchange -> Arrays.asList(
+				new Spacer(new Vec2(spacer.x, 0)),
+				buildMetaCol(world, playerPos, exchange),
+				buildRuleCol("Input:", exchange.input),
+				buildRuleCol("Output:", exchange.output)))
+				.setColumnWeight(1, 1)
+				.setColumnWeight(2, 1)
+				.setColumnWeight(3, 1);
+		final Label statusLabel = new Label(getStatusText()).align(ALIGN_CENTER);
+		final Label priceLabel = new Label(getPriceText()).align(ALIGN_CENTER);
+		if (searchResult != null) {
+			resultsList.addItems(searchResult.exchanges);
+			if (searchResult.exchanges.isEmpty()) outputTextField.getTextField().setFocused(true);
 		}
-		resultsTable.addRow(Arrays.asList(new Spacer(spacer), new Spacer(), new Spacer(), new Spacer()));
 
-		final ScrollBox scroller = new ScrollBox(resultsTable);
+		final ScrollBox scroller = new ScrollBox(resultsList);
 		scroller.setWeight(new Vec2(Vec2.LARGE, Vec2.LARGE));
+		scroller.onNearEnd(LOAD_MORE_DISTANCE, this::loadNextPage);
+		this.resultsList = resultsList;
+		this.resultsScroller = scroller;
+		this.statusLabel = statusLabel;
+		this.priceLabel = priceLabel;
 
 //		Button addWaypointsBtn = new Button("Show waypoints for all").onClick((btn) -> {
 //			// TODO add waypoints for all
@@ -531,12 +728,11 @@ public class SearchGui extends GuiRoot {
 		bottomControls.add(new Spacer());
 
 		// Toggle button for highlighting all nearby exchanges
-		String nearbyBtnText = mod.nearbySource.hasActiveHighlights() ? "Clear Nearby" : "Highlight Nearby";
-		bottomControls.add(new Button(nearbyBtnText).onClick((btn) -> {
+		bottomControls.add(new Button(getNearbyButtonText()).onBtnClick((btn) -> {
 			if (mod.nearbySource.hasActiveHighlights()) {
 				// Toggle off - clear the nearby highlights
 				mod.nearbySource.reset();
-				rebuild();
+				btn.setText(Component.literal(getNearbyButtonText()));
 			} else {
 				// Toggle on - search for nearby exchanges and highlight them
 				var query = new SearchQuery(
@@ -555,7 +751,7 @@ public class SearchGui extends GuiRoot {
 									mod.nearbySource.unsuppress(exchange.pos);
 								}
 							}
-							mc.doRunTask(this::rebuild);
+							mc.doRunTask(() -> btn.setText(Component.literal(getNearbyButtonText())));
 						})
 						.exceptionally(e -> {
 							e.printStackTrace();
@@ -572,6 +768,12 @@ public class SearchGui extends GuiRoot {
 
 		bottomControls.add(new Spacer());
 
+		bottomControls.add(new Button("Trade Routes").onClick((btn) -> {
+			mc.setScreen(new RouteGui(parentScreen));
+		}));
+
+		bottomControls.add(new Spacer());
+
 		bottomControls.add(new Button("Close").onClick((btn) -> {
 			mc.setScreen(parentScreen);
 		}));
@@ -585,6 +787,7 @@ public class SearchGui extends GuiRoot {
 		content.add(enchantFilterControls);
 		content.add(new Spacer(spacer));
 		content.add(statusLabel);
+		content.add(priceLabel);
 		content.add(new Spacer(spacer));
 		content.add(scroller);
 		content.add(new Spacer(spacer));
@@ -593,9 +796,44 @@ public class SearchGui extends GuiRoot {
 		return content;
 	}
 
+	private @NotNull String getNearbyButtonText() {
+		return mod.nearbySource.hasActiveHighlights() ? "Clear Nearby" : "Highlight Nearby";
+	}
+
+	/**
+	 * Known prices of the searched item, from all exchanges seen so far, not just the shown results.
+	 */
+	private @NotNull String getPriceText() {
+		if (outputQuery.isBlank()) return "";
+		var price = mod.priceIndex.mostTraded(outputQuery);
+		if (price == null) return "";
+		return GRAY + "Price: " + price.describe();
+	}
+
+	private @NotNull String getStatusText() {
+		if (searchError != null && (searchResult == null || searchResult.exchanges.isEmpty())) {
+			return "Error: " + searchError;
+		}
+		if (searchResult == null) return "Searching ...";
+		if (searchResult.exchanges.isEmpty()) {
+			if (inputQuery.isEmpty() && outputQuery.isEmpty()) {
+				return "Search for exchanges buying/selling certain items.";
+			}
+			return "No exchanges found. Try a different item.";
+		}
+		int count = searchResult.exchanges.size();
+		String numResults = String.valueOf(count);
+		if (count > 99 && nextPageCursor >= 0) numResults = count + "+";
+		String status = "Found " + numResults + " exchanges:";
+		if (remotePending) status = "Found " + numResults + " known exchanges, searching online ...";
+		else if (searchError != null) status = "Found " + numResults + " known exchanges (offline: " + searchError + ")";
+		return status;
+	}
+
+
 	@NotNull
 	private GuiElement buildEnchantModeButton(@NotNull EnchantFilterMode mode) {
-		return new Button(mode.display)
+		final Button button = new Button(mode.display)
 				.setEnabled(!mode.equals(enchantFilterMode))
 				.onClick((btn) -> {
 					enchantFilterMode = mode;
@@ -603,15 +841,36 @@ public class SearchGui extends GuiRoot {
 						enchantQuery = ""; // Clear enchant query when not in specific mode
 						restrictiveEnchants = false; // Reset restrictive toggle
 					}
+					updateEnchantControls();
 					performSearch();
 				});
+		enchantModeButtons.put(mode, button);
+		return button;
+	}
+
+	/**
+	 * Update the enchant filter controls in place, after the mode changed.
+	 */
+	private void updateEnchantControls() {
+		final boolean specific = enchantFilterMode == EnchantFilterMode.SPECIFIC;
+		enchantModeButtons.forEach((buttonMode, button) -> button.setEnabled(buttonMode != enchantFilterMode));
+		if (enchantTextField != null) {
+			if (!enchantTextField.getText().equals(enchantQuery)) enchantTextField.setText(enchantQuery);
+			enchantTextField.setEnabled(specific);
+		}
+		if (restrictiveEnchantsButton != null) {
+			restrictiveEnchantsButton.setText(Component.literal(restrictiveEnchants ? "Yes" : "No"));
+			restrictiveEnchantsButton.setEnabled(specific);
+		}
 	}
 
 	@NotNull
 	private GuiElement buildSortButton(@NotNull SortMode mode) {
-		return new Button(mode.display)
+		final Button button = new Button(mode.display)
 				.setEnabled(!mode.equals(sortMode))
 				.onClick((btn) -> sortBy(mode));
+		sortButtons.put(mode, button);
+		return button;
 	}
 
 	@NotNull
@@ -640,8 +899,7 @@ public class SearchGui extends GuiRoot {
 					// TODO sendMessage(cmd);
 				} else {
 					try {
-						final String suggestText = "[x:%s, y:%s, z:%s, name:\"%s\"]".formatted(
-								exchange.pos.x, exchange.pos.y, exchange.pos.z, wpName);
+						final String suggestText = WaypointUtils.getWaypointText(exchange.pos, wpName);
 						//? if >=1.21.11 {
 						mc.setScreen(new ChatScreen(suggestText, false));
 						//?} else {
@@ -0,0 +1,244 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.api.Exchanges;
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.MaterialNormalizer;
+import io.github.gjum.mc.tradex.model.Pos;
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+import static io.github.gjum.mc.tradex.TradexMod.mod;
+
+/**
+ * Plans a trip buying a list of items: picks stocked exchanges for each item, then orders the shops
+ * to keep the walk short (nearest neighbour, improved with 2-opt).
+ */
+public class ShoppingPlanner {
+	/**
+	 * Counted for each change of world, e.g. going through a portal, which straight-line distance can't measure.
+	 */
+	static final double WORLD_CHANGE_DISTANCE = 10000;
+	/**
+	 * Results fetched per item; more than enough to fill most lists, and 2-opt stays fast at a few hundred stops.
+	 */
+	static final int CANDIDATES_PER_ITEM = 200;
+	private static final int MAX_2OPT_PASSES = 50;
+	private static final long monthMs = 30L * 24 * 60 * 60 * 1000;
+
+	private static final Pattern itemPattern = Pattern.compile("^(\\d+)\\s*x?\\s+(.+)$");
+
+	/**
+	 * @param query output item, as typed into the search
+	 * @param quantity how many single (not compacted) items to buy
+	 */
+	public record Item(@NotNull String query, int quantity) {}
+
+	/**
+	 * @param trades how often to use the exchange
+	 */
+	public record Purchase(@NotNull Item item, @NotNull Exchange exchange, int trades) {
+		public int itemCount() {
+			return trades * exchange.output.countDecompacted();
+		}
+
+		public @NotNull String describe() {
+			return "%dx %d %s for %d %s".formatted(trades,
+					exchange.output.count, SearchQuery.getSpecForRule(exchange.output),
+					exchange.input.count, SearchQuery.getSpecForRule(exchange.input));
+		}
+	}
+
+	public record Stop(@NotNull Pos pos, @NotNull List<Purchase> purchases) {}
+
+	/**
+	 * @param stops in walking order
+	 * @param distance total walking distance, from the start if known, counting {@link #WORLD_CHANGE_DISTANCE} per world change
+	 * @param missing how many of each item no known exchange has in stock
+	 */
+	public record Plan(@NotNull List<Stop> stops, double distance, @NotNull LinkedHashMap<Item, Integer> missing) {}
+
+	/**
+	 * @param list comma separated items, each optionally preceded by a quantity, e.g. "64 iron ingot, 2x diamond, beacon"
+	 */
+	public static @NotNull List<Item> parseList(@NotNull String list) {
+		var items = new ArrayList<Item>();
+		for (String part : list.split(",")) {
+			part = part.trim();
+			if (part.isEmpty()) continue;
+			var matcher = itemPattern.matcher(part);
+			if (matcher.matches()) {
+				int quantity = Integer.parseInt(matcher.group(1));
+				if (quantity > 0) items.add(new Item(matcher.group(2).trim(), quantity));
+			} else {
+				items.add(new Item(part, 1));
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * Search locally known and remote exchanges for each item, then plan the trip.
+	 * Items whose remote search fails are planned with the locally known exchanges only.
+	 */
+	public static @NotNull CompletableFuture<Plan> plan(@NotNull List<Item> items, @Nullable Pos start) {
+		final long updatedAfter = System.currentTimeMillis() - monthMs;
+		var searches = new ArrayList<CompletableFuture<List<Exchange>>>();
+		for (var item : items) {
+			var query = new SearchQuery(
+					"", item.query,
+					start,
+					updatedAfter, false, CANDIDATES_PER_ITEM, "closest"
+			);
+			final var local = mod.localSearch.searchAsync(query);
+			final var remote = Exchanges.search(query)
+					.thenApply(result -> {
+						mod.localSearch.remember(result);
+						mod.indexExchanges(result.exchanges);
+						return result;
+					})
+					.exceptionally(e -> null);
+			searches.add(local.thenCombine(remote, (localResult, result) -> LocalSearch.merge(query, localResult, result).exchanges));
+		}
+		return CompletableFuture.allOf(searches.toArray(new CompletableFuture[0]))
+				.thenApplyAsync(v -> {
+					var candidates = new LinkedHashMap<Item, List<Exchange>>();
+					for (int i = 0; i < items.size(); i++) {
+						candidates.put(items.get(i), searches.get(i).join());
+					}
+					return plan(candidates, start);
+				});
+	}
+
+	/**
+	 * @param candidates exchanges selling each item, in the order the items should be planned
+	 */
+	static @NotNull Plan plan(@NotNull LinkedHashMap<Item, List<Exchange>> candidates, @Nullable Pos start) {
+		// exchanges may be candidates for several items, they share their stock
+		var tradesLeft = new HashMap<ExchangeStore.Key, Integer>();
+		var stops = new LinkedHashMap<Pos, Stop>();
+		var missing = new LinkedHashMap<Item, Integer>();
+
+		for (var entry : candidates.entrySet()) {
+			final var item = entry.getKey();
+			var usable = usableExchanges(item, entry.getValue());
+			// shops already on the trip first, then the closest ones
+			usable.sort(Comparator.comparing((Exchange e) -> !stops.containsKey(e.pos))
+					.thenComparingDouble(e -> distance(start, e.pos)));
+
+			int remaining = item.quantity;
+			for (var exchange : usable) {
+				if (remaining <= 0) break;
+				var key = ExchangeStore.Key.of(exchange);
+				int stock = tradesLeft.getOrDefault(key, exchange.stock);
+				int perTrade = exchange.output.countDecompacted();
+				int trades = Math.min(stock, (remaining + perTrade - 1) / perTrade);
+				if (trades <= 0) continue;
+				tradesLeft.put(key, stock - trades);
+				remaining -= trades * perTrade;
+				stops.computeIfAbsent(exchange.pos, pos -> new Stop(pos, new ArrayList<>()))
+						.purchases.add(new Purchase(item, exchange, trades));
+			}
+			if (remaining > 0) missing.put(item, remaining);
+		}
+
+		var ordered = orderStops(new ArrayList<>(stops.values()), start);
+		double total = 0;
+		Pos at = start;
+		for (var stop : ordered) {
+			if (at != null) total += distance(at, stop.pos);
+			at = stop.pos;
+		}
+		return new Plan(ordered, total, missing);
+	}
+
+	/**
+	 * Stocked exchanges selling exactly the item if there are any, otherwise all search matches (e.g. "iron" for iron ingots).
+	 */
+	private static @NotNull List<Exchange> usableExchanges(@NotNull Item item, @NotNull List<Exchange> exchanges) {
+		final String material = MaterialNormalizer.normalize(item.query.trim());
+		var all = new ArrayList<Exchange>();
+		var exact = new ArrayList<Exchange>();
+		for (var exchange : exchanges) {
+			if (exchange.pos == null || exchange.input == null || exchange.output == null) continue;
+			if (exchange.stock <= 0 || exchange.output.countDecompacted() <= 0) continue;
+			all.add(exchange);
+			if (MaterialNormalizer.normalize(exchange.output.material).equals(material)) exact.add(exchange);
+		}
+		return exact.isEmpty() ? all : exact;
+	}
+
+	/**
+	 * Straight-line distance within a world, {@link #WORLD_CHANGE_DISTANCE} between worlds; 0 from an unknown start.
+	 */
+	static double distance(@Nullable Pos from, @NotNull Pos to) {
+		if (from == null) return 0;
+		if (!from.world.equals(to.world)) return WORLD_CHANGE_DISTANCE;
+		return from.distance(to);
+	}
+
+	/**
+	 * Open path from the start through all stops, not returning.
+	 * Node 0 is the start; without a start it is 0 away from every stop, so the path may begin anywhere.
+	 */
+	static @NotNull List<Stop> orderStops(@NotNull List<Stop> stops, @Nullable Pos start) {
+		final int n = stops.size() + 1;
+		if (n <= 2) return stops;
+		double[][] dist = new double[n][n];
+		for (int i = 1; i < n; i++) {
+			dist[0][i] = dist[i][0] = distance(start, stops.get(i - 1).pos);
+			for (int j = i + 1; j < n; j++) {
+				dist[i][j] = dist[j][i] = distance(stops.get(i - 1).pos, stops.get(j - 1).pos);
+			}
+		}
+
+		// nearest neighbour
+		int[] path = new int[n];
+		boolean[] visited = new boolean[n];
+		visited[0] = true;
+		for (int k = 1; k < n; k++) {
+			int prev = path[k - 1], best = -1;
+			for (int j = 1; j < n; j++) {
+				if (!visited[j] && (best == -1 || dist[prev][j] < dist[prev][best])) best = j;
+			}
+			path[k] = best;
+			visited[best] = true;
+		}
+
+		// 2-opt: reverse path[i..j] while that shortens it; the end of the path is open
+		for (int pass = 0; pass < MAX_2OPT_PASSES; pass++) {
+			boolean improved = false;
+			for (int i = 1; i < n - 1; i++) {
+				for (int j = i + 1; j < n; j++) {
+					double before = dist[path[i - 1]][path[i]];
+					double after = dist[path[i - 1]][path[j]];
+					if (j + 1 < n) {
+						before += dist[path[j]][path[j + 1]];
+						after += dist[path[i]][path[j + 1]];
+					}
+					if (after < before - 1e-9) {
+						for (int a = i, b = j; a < b; a++, b--) {
+							int tmp = path[a];
+							path[a] = path[b];
+							path[b] = tmp;
+						}
+						improved = true;
+					}
+				}
+			}
+			if (!improved) break;
+		}
+
+		var ordered = new ArrayList<Stop>(n - 1);
+		for (int k = 1; k < n; k++) ordered.add(stops.get(path[k] - 1));
+		return ordered;
+	}
+}
@@ -0,0 +1,187 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Pos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Buckets values by server, world and chunk, so range queries only visit nearby chunks.
+ * Holds at most one value per position. Not thread-safe; used from the client thread only.
+ */
+public class SpatialIndex<T> {
+	private final HashMap<String, HashMap<String, Long2ObjectOpenHashMap<ArrayList<Entry<T>>>>> servers = new HashMap<>();
+	private int size = 0;
+
+	private record Entry<T>(long key, @NotNull Pos pos, @NotNull T value) {}
+
+	private static long chunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+	}
+
+	private @Nullable Long2ObjectOpenHashMap<ArrayList<Entry<T>>> getChunks(@NotNull String server, @NotNull String world) {
+		var worlds = servers.get(server);
+		if (worlds == null) return null;
+		return worlds.get(world);
+	}
+
+	private @Nullable ArrayList<Entry<T>> getBucket(@NotNull Pos pos) {
+		var chunks = getChunks(pos.server, pos.world);
+		if (chunks == null) return null;
+		return chunks.get(chunkKey(pos.x >> 4, pos.z >> 4));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Set the value at this position, replacing any previous one.
+	 */
+	public void put(@NotNull Pos pos, @NotNull T value) {
+		var bucket = servers
+				.computeIfAbsent(pos.server, s -> new HashMap<>())
+				.computeIfAbsent(pos.world, w -> new Long2ObjectOpenHashMap<>())
+				.computeIfAbsent(chunkKey(pos.x >> 4, pos.z >> 4), k -> new ArrayList<>(2));
+		final long key = pos.key();
+		for (int i = 0; i < bucket.size(); i++) {
+			if (bucket.get(i).key == key) {
+				bucket.set(i, new Entry<>(key, pos, value));
+				return;
+			}
+		}
+		bucket.add(new Entry<>(key, pos, value));
+		size++;
+	}
+
+	/**
+	 * Set the value at this position, unless there already is one.
+	 */
+	public void putIfAbsent(@NotNull Pos pos, @NotNull T value) {
+		if (get(pos) == null) put(pos, value);
+	}
+
+	public @Nullable T get(@NotNull Pos pos) {
+		var bucket = getBucket(pos);
+		if (bucket == null) return null;
+		final long key = pos.key();
+		for (int i = 0; i < bucket.size(); i++) {
+			var entry = bucket.get(i);
+			if (entry.key == key) return entry.value;
+		}
+		return null;
+	}
+
+	public @Nullable T remove(@NotNull Pos pos) {
+		var chunks = getChunks(pos.server, pos.world);
+		if (chunks == null) return null;
+		final long chunkKey = chunkKey(pos.x >> 4, pos.z >> 4);
+		var bucket = chunks.get(chunkKey);
+		if (bucket == null) return null;
+		final long key = pos.key();
+		for (int i = 0; i < bucket.size(); i++) {
+			var entry = bucket.get(i);
+			if (entry.key == key) {
+				bucket.remove(i);
+				if (bucket.isEmpty()) chunks.remove(chunkKey);
+				size--;
+				return entry.value;
+			}
+		}
+		return null;
+	}
+
+	public void clear() {
+		servers.clear();
+		size = 0;
+	}
+
+	/**
+	 * Collect all values whose block position is within range of the center block (same server and world).
+	 * Appends to `out` without clearing it, so callers can reuse one list across frames.
+	 */
+	public void collectWithin(@NotNull Pos center, int range, @NotNull List<T> out) {
+		var chunks = getChunks(center.server, center.world);
+		if (chunks == null || chunks.isEmpty()) return;
+		final long rangeSq = (long) range * range;
+		final int minChunkX = (center.x - range) >> 4;
+		final int maxChunkX = (center.x + range) >> 4;
+		final int minChunkZ = (center.z - range) >> 4;
+		final int maxChunkZ = (center.z + range) >> 4;
+		final long gridCells = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+		if (chunks.size() < gridCells) {
+			// sparse: fewer occupied chunks than chunks in range, visit those directly,
+			// only looking into the ones in range
+			for (var chunk : chunks.long2ObjectEntrySet()) {
+				final long key = chunk.getLongKey();
+				final int chunkX = (int) key;
+				final int chunkZ = (int) (key >>> 32);
+				if (chunkX < minChunkX || chunkX > maxChunkX || chunkZ < minChunkZ || chunkZ > maxChunkZ) continue;
+				collectBucket(chunk.getValue(), center, rangeSq, out);
+			}
+		} else {
+			for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+				for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+					var bucket = chunks.get(chunkKey(chunkX, chunkZ));
+					if (bucket != null) collectBucket(bucket, center, rangeSq, out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect all values farther than range from the center block, in the center's server and world.
+	 * Chunks entirely out of range horizontally are taken whole, without checking each value.
+	 * Appends to `out` without clearing it.
+	 */
+	public void collectBeyond(@NotNull Pos center, int range, @NotNull List<T> out) {
+		var chunks = getChunks(center.server, center.world);
+		if (chunks == null) return;
+		final long rangeSq = (long) range * range;
+		for (var chunk : chunks.long2ObjectEntrySet()) {
+			final long key = chunk.getLongKey();
+			final int minX = ((int) key) << 4;
+			final int minZ = ((int) (key >>> 32)) << 4;
+			// horizontal distance from the center to the nearest block of the chunk
+			long dx = Math.max(0, Math.max(minX - center.x, center.x - (minX + 15)));
+			long dz = Math.max(0, Math.max(minZ - center.z, center.z - (minZ + 15)));
+			final boolean wholeChunkBeyond = dx * dx + dz * dz > rangeSq;
+			var bucket = chunk.getValue();
+			for (int i = 0; i < bucket.size(); i++) {
+				var entry = bucket.get(i);
+				if (wholeChunkBeyond || distSq(entry.pos, center) > rangeSq) out.add(entry.value);
+			}
+		}
+	}
+
+	/**
+	 * Collect all values, in no particular order. Appends to `out` without clearing it.
+	 */
+	public void collectAll(@NotNull List<T> out) {
+		for (var worlds : servers.values()) {
+			for (var chunks : worlds.values()) {
+				for (var bucket : chunks.values()) {
+					for (int i = 0; i < bucket.size(); i++) out.add(bucket.get(i).value);
+				}
+			}
+		}
+	}
+
+	private static long distSq(@NotNull Pos a, @NotNull Pos b) {
+		long dx = a.x - b.x;
+		long dy = a.y - b.y;
+		long dz = a.z - b.z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static <T> void collectBucket(@NotNull List<Entry<T>> bucket, @NotNull Pos center, long rangeSq, @NotNull List<T> out) {
+		for (int i = 0; i < bucket.size(); i++) {
+			var entry = bucket.get(i);
+			if (distSq(entry.pos, center) <= rangeSq) out.add(entry.value);
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.MaterialNormalizer;
+import io.github.gjum.mc.tradex.model.Pos;
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds chains of known exchanges that convert one item into another at the best overall rate,
+ * and chains that end with more of an item than they started with (arbitrage).
+ * Items are nodes, identified by their normalized spec ({@link SearchQuery#getSpecForRule});
+ * each stocked exchange is an edge, weighted by {@link Exchange#getRateOutPerIn()}.
+ * Exchanges are added as they are seen; searches run on a snapshot per server, which is rebuilt only after exchanges changed.
+ * Cycle searches run in parallel over start items. Thread-safe.
+ */
+public class TradeRoutes {
+	/**
+	 * Longer chains are not searched, they would be impractical to walk anyway.
+	 */
+	public static final int MAX_HOPS = 4;
+	/**
+	 * Cycles must gain at least this factor, to skip rounding noise.
+	 */
+	private static final double MIN_GAIN = 1.001;
+
+	/**
+	 * @param steps exchanges to use, in order; each one's output is the next one's input
+	 * @param gain output items per input item over the whole chain
+	 * @param maxRuns how often the whole chain can be done before one of its exchanges runs out of stock
+	 * @param travelDistance from the player (if known) to each exchange in turn
+	 */
+	public record Route(@NotNull List<Exchange> steps, double gain, int maxRuns, double travelDistance) {
+		public @NotNull String from() {
+			return SearchQuery.getSpecForRule(steps.getFirst().input);
+		}
+
+		public @NotNull String to() {
+			return SearchQuery.getSpecForRule(steps.getLast().output);
+		}
+
+		public @NotNull String describe() {
+			var items = new ArrayList<String>();
+			items.add(from());
+			for (var step : steps) items.add(SearchQuery.getSpecForRule(step.output));
+			return "x%s in %d trades: %s, %s, up to %d times".formatted(
+					Utils.rateToText(gain), steps.size(), String.join(" -> ", items),
+					Utils.distanceToText(travelDistance), maxRuns);
+		}
+	}
+
+	private final HashMap<ExchangeStore.Key, Exchange> exchanges = new HashMap<>();
+	/**
+	 * Incremented on every change, so the snapshot is only rebuilt when needed.
+	 */
+	private int version = 0;
+	private @Nullable Graph graph;
+
+	public synchronized void add(@NotNull Exchange exchange) {
+		if (exchange.pos == null || exchange.input == null || exchange.output == null) return;
+		exchanges.put(ExchangeStore.Key.of(exchange), exchange);
+		version++;
+	}
+
+	public void addAll(@Nullable Collection<Exchange> exchanges) {
+		if (exchanges == null) return;
+		for (var exchange : exchanges) add(exchange);
+	}
+
+	public synchronized void clear() {
+		exchanges.clear();
+		version++;
+		graph = null;
+	}
+
+	/**
+	 * Compact adjacency arrays. All exchanges are kept as edges, even several between the same items,
+	 * because the best one may be out of range of a search.
+	 */
+	static final class Graph {
+		final int version;
+		final @Nullable String server;
+		/**
+		 * Sorted, for prefix lookups.
+		 */
+		final String[] items;
+		final Object2IntOpenHashMap<String> itemIds = new Object2IntOpenHashMap<>();
+		/**
+		 * Outgoing edges of item `i` are `edgeStart[i]` (inclusive) to `edgeStart[i + 1]` (exclusive).
+		 */
+		final int[] edgeStart;
+		final int[] edgeFrom;
+		final int[] edgeTo;
+		/**
+		 * -log(rate), so the best chain is the shortest path, and a profitable cycle is a negative one.
+		 */
+		final double[] edgeWeight;
+		final Exchange[] edgeExchange;
+		final boolean[] hasIncoming;
+
+		/**
+		 * @param server only exchanges on this server, or all if null
+		 */
+		Graph(int version, @Nullable String server, @NotNull Collection<Exchange> exchanges) {
+			this.version = version;
+			this.server = server;
+
+			var byFrom = new HashMap<String, ArrayList<Exchange>>();
+			int edgeCount = 0;
+			for (var exchange : exchanges) {
+				if (exchange.stock <= 0) continue;
+				if (server != null && !server.equals(exchange.pos.server)) continue;
+				double rate = exchange.getRateOutPerIn();
+				if (!(rate > 0) || Double.isInfinite(rate)) continue;
+				var from = SearchQuery.getSpecForRule(exchange.input);
+				var to = SearchQuery.getSpecForRule(exchange.output);
+				if (from.equals(to)) continue;
+				byFrom.computeIfAbsent(from, k -> new ArrayList<>()).add(exchange);
+				byFrom.computeIfAbsent(to, k -> new ArrayList<>());
+				edgeCount++;
+			}
+
+			items = byFrom.keySet().toArray(new String[0]);
+			Arrays.sort(items);
+			for (int i = 0; i < items.length; i++) itemIds.put(items[i], i);
+
+			edgeStart = new int[items.length + 1];
+			edgeFrom = new int[edgeCount];
+			edgeTo = new int[edgeCount];
+			edgeWeight = new double[edgeCount];
+			edgeExchange = new Exchange[edgeCount];
+			hasIncoming = new boolean[items.length];
+			int e = 0;
+			for (int from = 0; from < items.length; from++) {
+				edgeStart[from] = e;
+				for (var exchange : byFrom.get(items[from])) {
+					int to = itemIds.getInt(SearchQuery.getSpecForRule(exchange.output));
+					edgeFrom[e] = from;
+					edgeTo[e] = to;
+					edgeWeight[e] = -Math.log(exchange.getRateOutPerIn());
+					edgeExchange[e] = exchange;
+					hasIncoming[to] = true;
+					e++;
+				}
+			}
+			edgeStart[items.length] = e;
+		}
+
+		/**
+		 * @return for each edge, whether its exchange is within range of the search; computed once per search
+		 */
+		boolean[] usableEdges(@Nullable Pos center, int maxDistance) {
+			var usable = new boolean[edgeExchange.length];
+			for (int e = 0; e < usable.length; e++) {
+				usable[e] = isReachable(edgeExchange[e].pos, center, maxDistance);
+			}
+			return usable;
+		}
+
+		/**
+		 * @return id of the item with that name, or of the first item whose spec starts with it, or -1
+		 */
+		int findItem(@NotNull String query) {
+			final String name = MaterialNormalizer.normalize(query.trim());
+			if (name.isEmpty()) return -1;
+			if (itemIds.containsKey(name)) return itemIds.getInt(name);
+			int i = Arrays.binarySearch(items, name);
+			if (i < 0) i = -i - 1;
+			if (i < items.length && items[i].startsWith(name)) return i;
+			return -1;
+		}
+	}
+
+	private static boolean isReachable(@NotNull Pos pos, @Nullable Pos center, int maxDistance) {
+		if (center == null) return true;
+		if (!center.server.equals(pos.server)) return false;
+		if (maxDistance <= 0) return true;
+		return center.world.equals(pos.world) && center.distance(pos) <= maxDistance;
+	}
+
+	/**
+	 * Moving around does not invalidate the snapshot, the distance limit is applied while searching.
+	 * @param server only exchanges on this server, or all if null
+	 */
+	synchronized @NotNull Graph snapshot(@Nullable String server) {
+		if (graph == null || graph.version != version || !Objects.equals(graph.server, server)) {
+			graph = new Graph(version, server, new ArrayList<>(exchanges.values()));
+		}
+		return graph;
+	}
+
+	/**
+	 * @return profitable cycles, best gain first, at most `limit`
+	 */
+	public @NotNull CompletableFuture<List<Route>> findCycles(@Nullable Pos center, int maxDistance, int limit) {
+		return CompletableFuture.supplyAsync(() -> {
+			var graph = snapshot(center == null ? null : center.server);
+			var usable = graph.usableEdges(center, maxDistance);
+			// parallel stream: fork-join over the start items
+			List<Route> cycles = IntStream.range(0, graph.items.length).parallel()
+					.filter(start -> graph.hasIncoming[start] && graph.edgeStart[start] < graph.edgeStart[start + 1])
+					.mapToObj(start -> shortestPath(graph, usable, start, start, center))
+					.filter(route -> route != null && route.gain >= MIN_GAIN)
+					.collect(Collectors.toList());
+			cycles.sort(Comparator.comparingDouble(Route::gain).reversed());
+			// each cycle is found once from every item on it
+			var seen = new HashSet<HashSet<Exchange>>();
+			var result = new ArrayList<Route>();
+			for (var route : cycles) {
+				if (result.size() >= limit) break;
+				if (seen.add(new HashSet<>(route.steps))) result.add(route);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * @return the chain of exchanges converting `from` into the most `to`, or null if there is none
+	 */
+	public @NotNull CompletableFuture<@Nullable Route> findPath(@NotNull String from, @NotNull String to, @Nullable Pos center, int maxDistance) {
+		return CompletableFuture.supplyAsync(() -> {
+			var graph = snapshot(center == null ? null : center.server);
+			int source = graph.findItem(from);
+			int target = graph.findItem(to);
+			if (source < 0 || target < 0 || source == target) return null;
+			return shortestPath(graph, graph.usableEdges(center, maxDistance), source, target, center);
+		});
+	}
+
+	/**
+	 * Bellman-Ford limited to {@link #MAX_HOPS} edges, so negative cycles (arbitrage) can't make it loop forever.
+	 * Each round only relaxes the edges of items that improved in the previous round,
+	 * and all state is kept in maps of the items reached so far, so a search costs nothing for unrelated items.
+	 * @param usable edges allowed in this search, see {@link Graph#usableEdges}
+	 * @param target may be the source, to find the most profitable cycle through it
+	 */
+	static @Nullable Route shortestPath(@NotNull Graph graph, boolean[] usable, int source, int target, @Nullable Pos center) {
+		var best = new Int2DoubleOpenHashMap();
+		best.defaultReturnValue(Double.POSITIVE_INFINITY);
+		best.put(source, 0);
+		// edge used to reach each item in each round, only for items that improved in that round
+		var pred = new Int2IntOpenHashMap[MAX_HOPS + 1];
+
+		var frontier = new IntArrayList();
+		frontier.add(source);
+		for (int hop = 1; hop <= MAX_HOPS && !frontier.isEmpty(); hop++) {
+			// improvements of this round, only visible to the next one
+			var improved = new Int2DoubleOpenHashMap();
+			var hopPred = new Int2IntOpenHashMap();
+			hopPred.defaultReturnValue(-1);
+			for (int i = 0; i < frontier.size(); i++) {
+				int from = frontier.getInt(i);
+				double fromDist = best.get(from);
+				for (int e = graph.edgeStart[from]; e < graph.edgeStart[from + 1]; e++) {
+					if (!usable[e]) continue;
+					int to = graph.edgeTo[e];
+					double dist = fromDist + graph.edgeWeight[e];
+					double current = improved.containsKey(to) ? improved.get(to) : best.get(to);
+					if (dist < current - 1e-12) {
+						improved.put(to, dist);
+						hopPred.put(to, e);
+					}
+				}
+			}
+			pred[hop] = hopPred;
+			best.putAll(improved);
+			frontier = new IntArrayList(improved.keySet());
+		}
+
+		if (target == source ? !(best.get(target) < 0) : best.get(target) == Double.POSITIVE_INFINITY) return null;
+
+		var steps = new ArrayList<Exchange>();
+		int item = target;
+		for (int hop = MAX_HOPS; hop > 0; hop--) {
+			if (pred[hop] == null) continue;
+			int e = pred[hop].get(item);
+			if (e == -1) continue;
+			steps.add(graph.edgeExchange[e]);
+			item = graph.edgeFrom[e];
+			// a cycle may have been found going around twice, once is enough
+			if (target == source && item == source) break;
+		}
+		if (steps.isEmpty()) return null;
+		steps = new ArrayList<>(steps.reversed());
+
+		double gain = 1;
+		int maxRuns = Integer.MAX_VALUE;
+		double travel = 0;
+		Pos at = center;
+		for (var step : steps) {
+			gain *= step.getRateOutPerIn();
+			maxRuns = Math.min(maxRuns, step.stock);
+			if (at != null && at.world.equals(step.pos.world)) travel += at.distance(step.pos);
+			at = step.pos;
+		}
+		return new Route(steps, gain, maxRuns, travel);
+	}
+}
@@ -5,6 +5,7 @@ import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.arguments.BoolArgumentType;
+import io.github.gjum.mc.tradex.api.Api;
 import io.github.gjum.mc.tradex.api.Exchanges;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -12,6 +13,7 @@ import io.github.gjum.mc.tradex.api.MojangAuthProtocol;
 import io.github.gjum.mc.tradex.model.Exchange;
 import io.github.gjum.mc.tradex.model.Pos;
 import io.github.gjum.mc.tradex.model.SearchQuery;
+import io.github.gjum.mc.tradex.model.StackSizeTable;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
@@ -35,18 +37,22 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.HoverEvent;
 import net.minecraft.network.protocol.game.ClientboundLoginPacket;
 import net.minecraft.network.protocol.game.ServerboundCommandSuggestionPacket;
+import net.minecraft.world.level.block.ChestBlock;
+import net.minecraft.world.level.block.state.properties.ChestType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static io.github.gjum.mc.tradex.Utils.mc;
-import static io.github.gjum.mc.tradex.api.Api.gson;
 import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.argument;
 import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.literal;
 import static net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper.registerKeyBinding;
@@ -66,6 +72,16 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 	public KeyMapping keyClearHighlights = new KeyMapping("Clear Highlights", InputConstants.UNKNOWN.getValue(), "Tradex");
 	*///?}
 
+	/**
+	 * Parses chat and handles the resulting exchanges, so none of that runs on the client thread.
+	 * Single thread, so lines are parsed in the order they arrived.
+	 */
+	private final ExecutorService chatWorker = Executors.newSingleThreadExecutor(r -> {
+		var thread = new Thread(r, "Tradex-Chat");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// only accessed on the chat worker
 	private ChatHandler chatHandler = new ChatHandler(this);
 
 	public final HighlightManager highlightManager = new HighlightManager();
@@ -74,6 +90,14 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 	public final SearchResultSource searchSource = highlightManager.searchSource;
 	public final NearbyExchangesSource nearbySource = highlightManager.nearbySource;
 
+	public final ExchangeStore exchangeStore = new ExchangeStore();
+	public final LocalSearch localSearch = new LocalSearch(exchangeStore);
+	public final SearchCache searchCache = new SearchCache();
+	public final PriceIndex priceIndex = new PriceIndex();
+	public final TradeRoutes tradeRoutes = new TradeRoutes();
+	private @Nullable ShoppingPlanner.Plan lastPlan;
+	public final UploadQueue uploadQueue = new UploadQueue();
+
 	public @NotNull String getCurrentServerName() {
 		if (mc.getCurrentServer() == null) return "singleplayer"; // single player
 		return mc.getCurrentServer().ip;
@@ -87,6 +111,38 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 		*///?}
 	}
 
+	/**
+	 * How long the chat worker waits for the client thread to look at a chest, before giving up on finding its other half.
+	 * Bounded, because the client thread stops running tasks e.g. while shutting down, and the worker must not hang.
+	 */
+	private static final long CHEST_LOOKUP_TIMEOUT_MS = 1000;
+
+	public @Nullable Pos getOtherChestHalf(@NotNull Pos pos) {
+		// called on the chat worker, but the world may only be read on the client thread
+		var lookup = mc.submit(() -> {
+			// the exchange may have been shown before a world change
+			if (mc.level == null || !pos.world.equals(getCurrentWorldName())) return null;
+			var state = mc.level.getBlockState(pos.block());
+			if (!(state.getBlock() instanceof ChestBlock)) return null;
+			if (state.getValue(ChestBlock.TYPE) == ChestType.SINGLE) return null;
+			var other = pos.block().relative(ChestBlock.getConnectedDirection(state));
+			return new Pos(pos.server, pos.world, other.getX(), other.getY(), other.getZ());
+		});
+		try {
+			return lookup.get(CHEST_LOOKUP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			lookup.cancel(false);
+			LOG.warn("Client thread did not respond, treating " + pos + " as a single chest");
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
 	public @NotNull Pos getPlayerPos() {
 		var p = mc.player.blockPosition();
 		return new Pos(getCurrentServerName(), getCurrentWorldName(),
@@ -98,6 +154,8 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 		if (mod != null) throw new IllegalStateException("Constructor called twice");
 		mod = new TradexMod();
 		TradexConfig.load();
+		mod.exchangeStore.open();
+		mod.uploadQueue.open();
 		MojangAuthProtocol.obtainToken();
 
 		registerKeyBinding(mod.keyOpenGui);
@@ -120,8 +178,22 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 
 	public void handleJoinGame(ClientboundLoginPacket packet) {
 		try {
-			chatHandler = new ChatHandler(this);
+			chatWorker.execute(() -> chatHandler = new ChatHandler(this));
 			highlightManager.reset();
+			Pos.resetDimensionIds();
+			searchCache.clear();
+			localSearch.clear();
+			priceIndex.clear();
+			tradeRoutes.clear();
+			lastPlan = null;
+			StackSizeTable.rebuild();
+			Api.warmUp();
+			final String server = getCurrentServerName();
+			exchangeStore.whenLoaded().thenRun(() -> {
+				var stored = exchangeStore.getAll(server);
+				indexExchanges(stored);
+				mc.execute(() -> exploredSource.restoreExchanges(stored));
+			});
 		} catch (Throwable err) {
 			err.printStackTrace();
 		}
@@ -189,6 +261,97 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 					return 1;
 				}))))));
 
+		dispatcher.register(
+				literal("tradex"
+				).then(literal("price"
+				).then(argument("item", StringArgumentType.greedyString()
+				).executes(context -> {
+					String item = context.getArgument("item", String.class);
+					var prices = priceIndex.lookup(item);
+					if (prices.isEmpty()) {
+						Utils.showChat(Component.literal("Tradex: no known exchanges selling " + item));
+						return 1;
+					}
+					int shown = Math.min(10, prices.size());
+					for (int i = 0; i < shown; i++) {
+						Utils.showChat(Component.literal("Tradex: " + prices.get(i).describe()));
+					}
+					if (prices.size() > shown) {
+						Utils.showChat(Component.literal("...and " + (prices.size() - shown) + " more"));
+					}
+					return 1;
+				}))));
+
+		// /tradex route cycles [maxDistance]: trade chains that end with more than they started with
+		// /tradex route "<from>" <to>: best chain of trades converting one item into another
+		dispatcher.register(
+				literal("tradex"
+				).then(literal("route"
+				).then(literal("cycles"
+				).executes(context -> {
+					showCycles(0);
+					return 1;
+				}).then(argument("maxDistance", IntegerArgumentType.integer(0)
+				).executes(context -> {
+					showCycles(IntegerArgumentType.getInteger(context, "maxDistance"));
+					return 1;
+				})))));
+
+		dispatcher.register(
+				literal("tradex"
+				).then(literal("route"
+				).then(argument("from", StringArgumentType.string()
+				).then(argument("to", StringArgumentType.greedyString()
+				).executes(context -> {
+					String from = StringArgumentType.getString(context, "from");
+					String to = StringArgumentType.getString(context, "to");
+					tradeRoutes.findPath(from, to, getPlayerPos(), 0).thenAccept(route -> mc.execute(() -> {
+						if (route == null) {
+							Utils.showChat(Component.literal("Tradex: no known trades from " + from + " to " + to));
+							return;
+						}
+						showRoute(route);
+					})).exceptionally(e -> {
+						e.printStackTrace();
+						return null;
+					});
+					return 1;
+				})))));
+
+		// /tradex plan <list>: shops to visit for a comma separated shopping list, e.g. "64 iron ingot, 2 diamond"
+		// /tradex plan waypoints: show the stops of the last plan as waypoints in chat
+		dispatcher.register(
+				literal("tradex"
+				).then(literal("plan"
+				).then(literal("waypoints"
+				).executes(context -> {
+					if (lastPlan == null || lastPlan.stops().isEmpty()) {
+						Utils.showChat(Component.literal("Tradex: no shopping plan yet, use /tradex plan <items>"));
+						return 1;
+					}
+					var stops = lastPlan.stops();
+					for (int i = 0; i < stops.size(); i++) {
+						WaypointUtils.showWaypoint(stops.get(i).pos(), "Shop " + (i + 1));
+					}
+					return 1;
+				})).then(argument("list", StringArgumentType.greedyString()
+				).executes(context -> {
+					var items = ShoppingPlanner.parseList(StringArgumentType.getString(context, "list"));
+					if (items.isEmpty()) {
+						Utils.showChat(Component.literal("Tradex: list items like this: 64 iron ingot, 2 diamond"));
+						return 1;
+					}
+					ShoppingPlanner.plan(items, getPlayerPos()).thenAccept(plan -> mc.execute(() -> {
+						lastPlan = plan;
+						showPlan(plan);
+					})).exceptionally(e -> {
+						e.printStackTrace();
+						mc.execute(() -> Utils.showChat(Component.literal("Tradex: planning failed: " + e.getMessage())));
+						return null;
+					});
+					return 1;
+				}))));
+
 		dispatcher.register(
 				literal("tradex"
 				).then(literal("search"
@@ -304,35 +467,54 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 	}
 
 	public void handleReceivedChat(Component chat) {
-		try {
-			chatHandler.handeChat(chat);
-		} catch (Throwable err) {
-			err.printStackTrace();
-		}
+		if (mc.level == null) return;
+		// read here on the client thread, by the time the worker runs, the world may have changed
+		final String server = getCurrentServerName();
+		final String world = getCurrentWorldName();
+		chatWorker.execute(() -> {
+			try {
+				chatHandler.handeChat(chat, server, world);
+			} catch (Throwable err) {
+				err.printStackTrace();
+			}
+		});
 	}
 
 	public void handleReceivedTabComplete(int id) {
-		try {
-			if (id == -3 && chatHandler.parsingExchange != null) {
-				mc.player.connection.sendCommand("cti");
-			}
-		} catch (Throwable err) {
-			err.printStackTrace();
-		}
+		if (id != -3) return;
+		// on the chat worker, so it sees the exchange header that was received before it
+		chatWorker.execute(() -> {
+			if (chatHandler.parsingExchange == null) return;
+			mc.execute(() -> {
+				try {
+					mc.player.connection.sendCommand("cti");
+				} catch (Throwable err) {
+					err.printStackTrace();
+				}
+			});
+		});
 	}
 
+	/**
+	 * Called on the chat worker. The exchange is not changed afterwards,
+	 * so it can be shared with the client thread and the search threads as is.
+	 */
 	public void handleExchangeFromChat(Exchange exchange) {
-		Exchanges.upload(exchange);
-
-		exploredSource.addExchange(exchange);
-		exploredSource.unsuppress(exchange.pos);
-
-		// If nearby highlighting is active, update it with the new exchange data
-		// This ensures that recently clicked exchanges show with updated colors (red/orange/cyan)
-		// in addition to the temporary yellow/green explored highlighting
-		if (nearbySource.hasActiveHighlights()) {
-			nearbySource.addOrUpdateExchange(exchange);
-		}
+		uploadQueue.add(exchange);
+		exchangeStore.put(exchange);
+		indexExchanges(List.of(exchange));
+
+		mc.execute(() -> {
+			exploredSource.addExchange(exchange);
+			exploredSource.unsuppress(exchange.pos);
+
+			// If nearby highlighting is active, update it with the new exchange data
+			// This ensures that recently clicked exchanges show with updated colors (red/orange/cyan)
+			// in addition to the temporary yellow/green explored highlighting
+			if (nearbySource.hasActiveHighlights()) {
+				nearbySource.addOrUpdateExchange(exchange);
+			}
+		});
 
 		var cmd = "/tradex search %s".formatted(SearchQuery.getSpecForRule(exchange.output));
 		//? if >=1.21.6 {
@@ -348,20 +530,63 @@ public class TradexMod implements ModInitializer, ChatHandler.InfoProvider {
 				.withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Component.literal("Click to open the search screen")))
 		);
 		*///?}
-		Utils.showChat(text);
+		mc.execute(() -> Utils.showChat(text));
+	}
 
-		try {
-			var path = Path.of("exchanges-log.jsonl");
-			if (Files.exists(path)) {
-				var line = gson.toJson(exchange) + "\n";
-				Files.write(path, line.getBytes(), StandardOpenOption.APPEND);
+	private void showCycles(int maxDistance) {
+		tradeRoutes.findCycles(getPlayerPos(), maxDistance, 5).thenAccept(routes -> mc.execute(() -> {
+			if (routes.isEmpty()) {
+				Utils.showChat(Component.literal("Tradex: no profitable trade cycles among known exchanges"));
+				return;
 			}
-		} catch (IOException ignored) {
+			for (var route : routes) showRoute(route);
+		})).exceptionally(e -> {
+			e.printStackTrace();
+			return null;
+		});
+	}
+
+	private void showPlan(@NotNull ShoppingPlanner.Plan plan) {
+		if (plan.stops().isEmpty()) {
+			Utils.showChat(Component.literal("Tradex: no known exchanges have these items in stock"));
+			return;
 		}
+		Utils.showChat(Component.literal("Tradex: %d shops, %s".formatted(
+				plan.stops().size(), Utils.distanceToText(plan.distance()))));
+		var stops = plan.stops();
+		for (int i = 0; i < stops.size(); i++) {
+			var stop = stops.get(i);
+			Utils.showChat(Component.literal("%d. %s %s".formatted(i + 1, stop.pos(), stop.pos().world)));
+			for (var purchase : stop.purchases()) {
+				Utils.showChat(Component.literal("  " + purchase.describe()));
+			}
+		}
+		for (var missing : plan.missing().entrySet()) {
+			Utils.showChat(Component.literal("Tradex: missing %d %s".formatted(missing.getValue(), missing.getKey().query())));
+		}
+		Utils.showChat(Component.literal("Tradex: /tradex plan waypoints to show them as waypoints"));
+	}
+
+	private void showRoute(@NotNull TradeRoutes.Route route) {
+		Utils.showChat(Component.literal("Tradex: " + route.describe()));
+		for (var step : route.steps()) {
+			Utils.showChat(Component.literal("  %s %s -> %s %s @ %d,%d,%d".formatted(
+					step.input.count, step.input.material,
+					step.output.count, step.output.material,
+					step.pos.x, step.pos.y, step.pos.z)));
+		}
+	}
+
+	/**
+	 * Make exchanges seen in chat or in search results known to the price index and the trade route finder.
+	 */
+	public void indexExchanges(@Nullable Collection<Exchange> exchanges) {
+		priceIndex.addAll(exchanges);
+		tradeRoutes.addAll(exchanges);
 	}
 
 	public void sendTabComplete(int id) {
-		mc.getConnection().send(new ServerboundCommandSuggestionPacket(id, "hel"));
+		mc.execute(() -> mc.getConnection().send(new ServerboundCommandSuggestionPacket(id, "hel")));
 	}
 
 	public void render(WorldRenderContext context) {
@@ -0,0 +1,273 @@
+package io.github.gjum.mc.tradex;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.github.gjum.mc.tradex.api.Api;
+import io.github.gjum.mc.tradex.api.Exchanges;
+import io.github.gjum.mc.tradex.model.Exchange;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static io.github.gjum.mc.tradex.TradexMod.LOG;
+import static io.github.gjum.mc.tradex.api.Api.gson;
+
+/**
+ * Uploads exchanges in the background.
+ * Updates to the same exchange (position and index) that arrive in quick succession,
+ * e.g. the stock after every single purchase, are coalesced into one upload of the latest state.
+ * Failed uploads are retried with exponential backoff.
+ * Pending uploads are kept on disk, so they survive a crash or a disconnect.
+ */
+public class UploadQueue {
+	public static final Path DEFAULT_PATH = Path.of("tradex", "upload-queue.jsonl");
+	/**
+	 * Wait this long after the last update of an exchange before uploading it.
+	 */
+	private static final long DEBOUNCE_MS = 2_000;
+	/**
+	 * Upload at most this long after the first update, even if the exchange keeps getting updated.
+	 */
+	private static final long MAX_DELAY_MS = 10_000;
+	private static final long MIN_BACKOFF_MS = 5_000;
+	private static final long MAX_BACKOFF_MS = 5 * 60_000;
+	private static final int MAX_IN_FLIGHT = 2;
+
+	private final Path path;
+	private final Function<JsonElement, CompletableFuture<?>> uploader;
+	private final long debounceMs;
+	private final long minBackoffMs;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		var thread = new Thread(r, "Tradex-UploadQueue");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// all guarded by `this`
+	private final LinkedHashMap<ExchangeStore.Key, Pending> pending = new LinkedHashMap<>();
+	private final HashSet<ExchangeStore.Key> inFlight = new HashSet<>();
+	private boolean persistScheduled = false;
+	/**
+	 * The one scheduled drain, at {@link #nextDrainAt}; a sooner due upload replaces it.
+	 */
+	private @Nullable ScheduledFuture<?> nextDrain;
+	private long nextDrainAt = Long.MAX_VALUE;
+
+	private static class Pending {
+		final JsonElement json;
+		final long firstQueuedAt;
+		long dueAt;
+		int attempts = 0;
+
+		Pending(JsonElement json, long firstQueuedAt, long dueAt) {
+			this.json = json;
+			this.firstQueuedAt = firstQueuedAt;
+			this.dueAt = dueAt;
+		}
+	}
+
+	public UploadQueue() {
+		this(DEFAULT_PATH, Exchanges::upload, DEBOUNCE_MS, MIN_BACKOFF_MS);
+	}
+
+	UploadQueue(@NotNull Path path, @NotNull Function<JsonElement, CompletableFuture<?>> uploader, long debounceMs, long minBackoffMs) {
+		this.path = path;
+		this.uploader = uploader;
+		this.debounceMs = debounceMs;
+		this.minBackoffMs = minBackoffMs;
+	}
+
+	/**
+	 * Load uploads left over from the last session, and start sending them.
+	 */
+	public CompletableFuture<Void> open() {
+		return CompletableFuture.runAsync(() -> {
+			if (!Files.exists(path)) return;
+			int loaded = 0;
+			try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.isBlank()) continue;
+					final Exchange exchange;
+					final JsonElement json;
+					try {
+						json = JsonParser.parseString(line);
+						exchange = gson.fromJson(json, Exchange.class);
+					} catch (JsonParseException e) {
+						continue;
+					}
+					if (exchange == null || exchange.pos == null) continue;
+					exchange.fixNulls();
+					synchronized (this) {
+						pending.putIfAbsent(ExchangeStore.Key.of(exchange), new Pending(json, 0, 0));
+					}
+					loaded++;
+				}
+			} catch (IOException e) {
+				LOG.warn("Failed loading upload queue " + path, e);
+			}
+			if (loaded > 0) LOG.info("Resuming %d pending uploads".formatted(loaded));
+			drain();
+		}, scheduler);
+	}
+
+	/**
+	 * Queue the current state of the exchange for upload, replacing any not yet uploaded state of it.
+	 */
+	public void add(@NotNull Exchange exchange) {
+		if (exchange.pos == null) return;
+		// serialize on the calling thread, see ExchangeStore#put
+		final JsonElement json = gson.toJsonTree(exchange);
+		final long now = System.currentTimeMillis();
+		synchronized (this) {
+			var key = ExchangeStore.Key.of(exchange);
+			var previous = pending.remove(key);
+			long firstQueuedAt = previous != null ? previous.firstQueuedAt : now;
+			long dueAt = Math.min(now + debounceMs, firstQueuedAt + MAX_DELAY_MS);
+			pending.put(key, new Pending(json, firstQueuedAt, dueAt));
+			schedulePersist();
+			scheduleDrain(dueAt);
+		}
+	}
+
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	/**
+	 * @return completes once all previously scheduled work (sends, not responses) ran
+	 */
+	CompletableFuture<Void> flush() {
+		return CompletableFuture.runAsync(() -> {}, scheduler);
+	}
+
+	/**
+	 * Drain at the given time, unless a drain is already scheduled for then or earlier.
+	 */
+	private synchronized void scheduleDrain(long dueAt) {
+		if (nextDrain != null && nextDrainAt <= dueAt) return;
+		if (nextDrain != null) nextDrain.cancel(false);
+		nextDrainAt = dueAt;
+		nextDrain = scheduler.schedule(this::drain, Math.max(0, dueAt - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Send all uploads that are due, and schedule the next drain for the earliest one that isn't.
+	 * Runs on the scheduler thread.
+	 */
+	private void drain() {
+		final long now = System.currentTimeMillis();
+		var toSend = new ArrayList<ExchangeStore.Key>();
+		long nextDueAt = Long.MAX_VALUE;
+		synchronized (this) {
+			// replaced below, with what is still waiting after this drain
+			if (nextDrain != null) nextDrain.cancel(false);
+			nextDrain = null;
+			nextDrainAt = Long.MAX_VALUE;
+			for (var entry : pending.entrySet()) {
+				if (inFlight.contains(entry.getKey())) continue;
+				var upload = entry.getValue();
+				if (upload.dueAt > now) {
+					nextDueAt = Math.min(nextDueAt, upload.dueAt);
+				} else if (inFlight.size() + toSend.size() < MAX_IN_FLIGHT) {
+					toSend.add(entry.getKey());
+				}
+			}
+			inFlight.addAll(toSend);
+		}
+		for (var key : toSend) send(key);
+		if (nextDueAt != Long.MAX_VALUE) scheduleDrain(nextDueAt);
+	}
+
+	private void send(ExchangeStore.Key key) {
+		final Pending upload;
+		synchronized (this) {
+			upload = pending.get(key);
+		}
+		CompletableFuture<?> sent;
+		try {
+			sent = uploader.apply(upload.json);
+		} catch (Throwable err) {
+			sent = CompletableFuture.failedFuture(err);
+		}
+		sent.whenCompleteAsync((result, err) -> {
+			synchronized (this) {
+				inFlight.remove(key);
+				if (err == null || !isRetryable(err)) {
+					if (err != null) LOG.warn("Dropping upload of " + key + ": " + err);
+					// unless a newer state was queued meanwhile
+					if (pending.get(key) == upload) pending.remove(key);
+					schedulePersist();
+				} else {
+					upload.attempts++;
+					long backoff = Math.min(MAX_BACKOFF_MS, minBackoffMs << Math.min(upload.attempts - 1, 16));
+					upload.dueAt = Math.max(upload.dueAt, System.currentTimeMillis() + backoff);
+					if (upload.attempts == 1) LOG.warn("Failed uploading exchange, retrying: " + err);
+				}
+			}
+			drain();
+		}, scheduler);
+	}
+
+	/**
+	 * Network errors and server errors are retried; requests the server rejected are not.
+	 */
+	private static boolean isRetryable(Throwable err) {
+		while (err instanceof CompletionException && err.getCause() != null) err = err.getCause();
+		if (err instanceof Api.HttpStatusException statusErr) {
+			return statusErr.status >= 500 || statusErr.status == 429;
+		}
+		return true;
+	}
+
+	private void schedulePersist() {
+		if (persistScheduled) return;
+		persistScheduled = true;
+		// coalesce bursts of changes into one write
+		scheduler.schedule(this::persist, 500, TimeUnit.MILLISECONDS);
+	}
+
+	private void persist() {
+		final ArrayList<JsonElement> lines;
+		synchronized (this) {
+			persistScheduled = false;
+			lines = new ArrayList<>(pending.size());
+			for (var upload : pending.values()) lines.add(upload.json);
+		}
+		try {
+			if (lines.isEmpty()) {
+				Files.deleteIfExists(path);
+				return;
+			}
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+			try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				for (var json : lines) {
+					out.write(gson.toJson(json));
+					out.newLine();
+				}
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOG.warn("Failed writing upload queue " + path, e);
+		}
+	}
+}
@@ -62,6 +62,13 @@ public class Utils {
 		return (int) delta + "m";
 	}
 
+	private static final NumberFormat fmtRate = new DecimalFormat("#0.###");
+
+	@NotNull
+	public static String rateToText(double rate) {
+		return fmtRate.format(rate);
+	}
+
 	@NotNull
 	public static String durationToText(long delta) {
 		if (delta < 0) delta = -delta;
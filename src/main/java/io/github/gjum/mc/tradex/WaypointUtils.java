@@ -2,6 +2,7 @@ package io.github.gjum.mc.tradex;
 
 
 import io.github.gjum.mc.tradex.model.Pos;
+import net.minecraft.network.chat.Component;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -45,4 +46,18 @@ public class WaypointUtils {
 		if (waypointCommandFormat == null) return null;
 		return String.format(waypointCommandFormat, name, pos.x, pos.y, pos.z);
 	}
+
+	/**
+	 * Map mods pick this up from chat and offer to add it as a waypoint.
+	 */
+	public static @NotNull String getWaypointText(@NotNull Pos pos, @NotNull String name) {
+		return "[x:%s, y:%s, z:%s, name:\"%s\"]".formatted(pos.x, pos.y, pos.z, name);
+	}
+
+	/**
+	 * Post the waypoint in the local chat only, like the search screen does; see {@link #getWaypointText}.
+	 */
+	public static void showWaypoint(@NotNull Pos pos, @NotNull String name) {
+		Utils.showChat(Component.literal(getWaypointText(pos, name)));
+	}
 }
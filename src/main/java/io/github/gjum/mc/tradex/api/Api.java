@@ -6,13 +6,22 @@ import io.github.gjum.mc.tradex.TradexMod;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static io.github.gjum.mc.tradex.TradexMod.LOG;
 import static io.github.gjum.mc.tradex.Utils.mc;
@@ -25,7 +34,55 @@ public class Api {
 			.excludeFieldsWithoutExposeAnnotation()
 			.create();
 
-	public static HttpClient client = HttpClient.newHttpClient();
+	/**
+	 * At most this many requests are sent at once; the rest wait in the queues below.
+	 * Keeps bursts (e.g. many uploads while exploring a shop) from exceeding the server's HTTP/2 stream limit.
+	 */
+	private static final int MAX_IN_FLIGHT = 4;
+
+	private static final ExecutorService executor = Executors.newFixedThreadPool(2, daemonThreads("Tradex-Api-"));
+	/**
+	 * Parses streamed responses, see {@link #requestStreaming}.
+	 * Separate from the HTTP client's executor, whose threads feed the streams being parsed.
+	 */
+	private static final ExecutorService parseExecutor = Executors.newFixedThreadPool(MAX_IN_FLIGHT, daemonThreads("Tradex-Api-Parse-"));
+
+	private static ThreadFactory daemonThreads(@NotNull String namePrefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(@NotNull Runnable r) {
+				var thread = new Thread(r, namePrefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Shared by all requests, so they are multiplexed over one HTTP/2 connection.
+	 */
+	public static final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.connectTimeout(Duration.ofSeconds(5))
+			.executor(executor)
+			.build();
+
+	public enum Priority {
+		/**
+		 * The user is waiting for the response, e.g. searches. Sent before any queued background requests.
+		 */
+		INTERACTIVE,
+		/**
+		 * E.g. uploads. Never takes the last free slot, so interactive requests don't wait behind them.
+		 */
+		BACKGROUND,
+	}
+
+	private static final ArrayDeque<Runnable> queuedInteractive = new ArrayDeque<>();
+	private static final ArrayDeque<Runnable> queuedBackground = new ArrayDeque<>();
+	private static int inFlight = 0;
 
 	public static String getUserAgent() {
 		return "TradexMod-fabric-v%s-mc%s".formatted(TradexMod.VERSION, mc.getLaunchedVersion());
@@ -39,24 +96,156 @@ public class Api {
 		return token;
 	}
 
+	/**
+	 * Open the connection and obtain a token ahead of the first request, e.g. when joining a server.
+	 */
+	public static void warmUp() {
+		getToken().thenCompose(token -> enqueue(Priority.BACKGROUND, () -> client.sendAsync(
+				HttpRequest.newBuilder()
+						.timeout(Duration.ofSeconds(5))
+						.uri(URI.create(API_ROOT))
+						.setHeader("User-Agent", getUserAgent())
+						.method("HEAD", HttpRequest.BodyPublishers.noBody())
+						.build(),
+				HttpResponse.BodyHandlers.discarding())
+		)).exceptionally(err -> {
+			LOG.warn("Failed connecting to " + API_ROOT + ": " + err);
+			return null;
+		});
+	}
+
 	public static CompletableFuture<HttpResponse<String>> request(String path, @Nullable Object payload) {
-		return request(URI.create(API_ROOT + path), payload);
-	}
-
-	public static CompletableFuture<HttpResponse<String>> request(URI uri, @Nullable Object payload) {
-		return getToken().thenCompose(token -> {
-			var request = HttpRequest.newBuilder()
-					.timeout(Duration.ofSeconds(5))
-					.uri(uri)
-					.setHeader("User-Agent", getUserAgent())
-					.setHeader("Authorization", "Bearer " + token);
-			if (payload != null) {
-				var payloadStr = gson.toJson(payload);
-				request.setHeader("Content-Type", "application/json");
-				request.POST(HttpRequest.BodyPublishers.ofString(payloadStr));
+		return request(path, payload, Priority.INTERACTIVE);
+	}
+
+	public static CompletableFuture<HttpResponse<String>> request(String path, @Nullable Object payload, @NotNull Priority priority) {
+		return request(URI.create(API_ROOT + path), payload, priority);
+	}
+
+	/**
+	 * Cancelling the returned future aborts the request, or drops it from the queue if it was not sent yet.
+	 */
+	public static CompletableFuture<HttpResponse<String>> request(URI uri, @Nullable Object payload, @NotNull Priority priority) {
+		return send(uri, payload, priority, request -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+	}
+
+	public interface BodyParser<T> {
+		T parse(HttpResponse<InputStream> response) throws IOException;
+	}
+
+	/**
+	 * Process a large response while it arrives, without holding the whole body in memory.
+	 * The parser runs on an API thread, and the request keeps its slot until the parser is done and the body is closed,
+	 * so streamed responses count against {@link #MAX_IN_FLIGHT} like any other.
+	 * Cancelling the returned future aborts the request, also while it is being parsed.
+	 */
+	public static <T> CompletableFuture<T> requestStreaming(URI uri, @Nullable Object payload, @NotNull Priority priority, @NotNull BodyParser<T> parser) {
+		return send(uri, payload, priority, request -> {
+			var response = client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+			var parsed = response.thenApplyAsync(res -> {
+				try (var body = res.body()) {
+					return parser.parse(res);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, parseExecutor);
+			parsed.whenComplete((value, err) -> {
+				if (!parsed.isCancelled()) return;
+				response.cancel(true);
+				// closing the body aborts the stream, and ends the parse
+				response.thenAccept(res -> {
+					try {
+						res.body().close();
+					} catch (IOException ignored) {
+					}
+				});
+			});
+			return parsed;
+		});
+	}
+
+	private static <T> CompletableFuture<T> send(URI uri, @Nullable Object payload, @NotNull Priority priority, @NotNull Function<HttpRequest, CompletableFuture<T>> sender) {
+		var result = new CompletableFuture<T>();
+		getToken().thenAccept(token -> {
+			if (result.isDone()) return; // cancelled while obtaining the token
+			var sent = enqueue(priority, () -> {
+				var request = HttpRequest.newBuilder()
+						.timeout(Duration.ofSeconds(5))
+						.uri(uri)
+						.setHeader("User-Agent", getUserAgent())
+						.setHeader("Authorization", "Bearer " + token);
+				if (payload != null) {
+					var payloadStr = gson.toJson(payload);
+					request.setHeader("Content-Type", "application/json");
+					request.POST(HttpRequest.BodyPublishers.ofString(payloadStr));
+				}
+				return sender.apply(request.build());
+			});
+			propagateCancel(result, sent);
+			sent.whenComplete((res, err) -> {
+				if (err != null) result.completeExceptionally(err);
+				else result.complete(res);
+			});
+		}).exceptionally(err -> {
+			result.completeExceptionally(err);
+			return null;
+		});
+		return result;
+	}
+
+	/**
+	 * Send the request once a slot is free for its priority.
+	 */
+	private static <T> CompletableFuture<T> enqueue(@NotNull Priority priority, @NotNull Supplier<CompletableFuture<T>> send) {
+		var result = new CompletableFuture<T>();
+		Runnable start = () -> {
+			CompletableFuture<T> sent;
+			try {
+				sent = send.get();
+			} catch (Throwable err) {
+				sent = CompletableFuture.failedFuture(err);
+			}
+			sent.whenComplete((value, err) -> {
+				synchronized (Api.class) {
+					inFlight--;
+				}
+				startQueued();
+				if (err != null) result.completeExceptionally(err);
+				else result.complete(value);
+			});
+			propagateCancel(result, sent);
+		};
+		synchronized (Api.class) {
+			if (priority == Priority.INTERACTIVE) queuedInteractive.add(start);
+			else queuedBackground.add(start);
+		}
+		result.whenComplete((value, err) -> {
+			if (!result.isCancelled()) return;
+			// don't send it at all if it is still queued
+			synchronized (Api.class) {
+				queuedInteractive.remove(start);
+				queuedBackground.remove(start);
 			}
-			return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
 		});
+		startQueued();
+		return result;
+	}
+
+	private static void startQueued() {
+		while (true) {
+			Runnable next;
+			synchronized (Api.class) {
+				if (inFlight < MAX_IN_FLIGHT && !queuedInteractive.isEmpty()) {
+					next = queuedInteractive.poll();
+				} else if (inFlight < MAX_IN_FLIGHT - 1 && !queuedBackground.isEmpty()) {
+					next = queuedBackground.poll();
+				} else {
+					return;
+				}
+				inFlight++;
+			}
+			next.run();
+		}
 	}
 
 	// utils
@@ -68,6 +257,31 @@ public class Api {
 	public static void drop(HttpResponse<String> ignored) {
 	}
 
+	/**
+	 * Cancel `upstream` once `downstream` gets cancelled, e.g. to abort a request whose result is no longer needed.
+	 * {@link CompletableFuture} doesn't do this by itself.
+	 * @return downstream
+	 */
+	public static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> downstream, CompletableFuture<?> upstream) {
+		downstream.whenComplete((value, err) -> {
+			if (downstream.isCancelled()) upstream.cancel(true);
+		});
+		return downstream;
+	}
+
+	public static void requireSuccess(HttpResponse<String> res) {
+		if (res.statusCode() >= 300) throw new HttpStatusException(res.statusCode(), res.body());
+	}
+
+	public static class HttpStatusException extends RuntimeException {
+		public final int status;
+
+		public HttpStatusException(int status, String body) {
+			super("HTTP " + status + ": " + body);
+			this.status = status;
+		}
+	}
+
 	public static <T> @NotNull Function<Throwable, T> logError(String msg) {
 		return e -> {
 			LOG.warn(msg);
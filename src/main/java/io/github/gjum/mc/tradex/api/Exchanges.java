@@ -1,51 +1,137 @@
 package io.github.gjum.mc.tradex.api;
 
+import com.google.gson.JsonElement;
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.github.gjum.mc.tradex.model.Exchange;
 import io.github.gjum.mc.tradex.model.SearchQuery;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class Exchanges {
-	public static CompletableFuture<Void> upload(Exchange exchange) {
-		return Api.request("/exchanges/upload", exchange)
-				.thenAccept(Api::drop)
-				.exceptionally(Api.logError("Failed uploading exchange"));
+	/**
+	 * Fails with {@link Api.HttpStatusException} if the server did not accept it. Usually called through the `UploadQueue`.
+	 * @param exchange serialized {@link Exchange}
+	 */
+	public static CompletableFuture<Void> upload(JsonElement exchange) {
+		return Api.request("/exchanges/upload", exchange, Api.Priority.BACKGROUND)
+				.thenAccept(Api::requireSuccess);
 	}
 
+	/**
+	 * The response is parsed while it arrives, without holding the whole body in memory.
+	 * Cancelling the returned future aborts the request.
+	 */
 	public static CompletableFuture<SearchResult> search(SearchQuery query) {
-		return Api.request("/exchanges/search", query)
-				.thenApply(Api.parseJson(SearchResult.class))
+		return searchPage(query, 0);
+	}
+
+	/**
+	 * Fetch up to `query.limit` results, following the first `cursor` results.
+	 * The API has no cursors, so this asks for `cursor + limit` results
+	 * and skips the first `cursor` of them while parsing, without building them.
+	 * @param cursor 0 for the first page, then {@link SearchResult#nextCursor} of the previous page
+	 */
+	public static CompletableFuture<SearchResult> searchPage(SearchQuery query, int cursor) {
+		final SearchQuery sentQuery = cursor == 0 ? query : query.withLimit(cursor + query.limit);
+		var request = Api.requestStreaming(URI.create(Api.API_ROOT + "/exchanges/search"), sentQuery,
+				Api.Priority.INTERACTIVE, res -> {
+					if (res.statusCode() >= 300) {
+						throw new Api.HttpStatusException(res.statusCode(), new String(res.body().readAllBytes(), StandardCharsets.UTF_8));
+					}
+					return readSearchResult(new InputStreamReader(res.body(), StandardCharsets.UTF_8), sentQuery, cursor);
+				});
+		var result = request
 				.whenComplete((searchResult, err) -> {
 					if (err != null || searchResult == null) return;
-					searchResult.ts = System.currentTimeMillis();
-					// make mutable, for sorting
-					searchResult.exchanges = new ArrayList<>(searchResult.exchanges);
-					for (var exchange : searchResult.exchanges) {
-						exchange.fixNulls();
-					}
-					// If client requested "cheapest" sorting, ensure we sort by per-normal-item price
-					if (query != null && query.sortMode != null && "cheapest".equalsIgnoreCase(query.sortMode)) {
-						searchResult.exchanges.sort(java.util.Comparator.comparingDouble(e -> {
-							if (e.output == null) return Double.POSITIVE_INFINITY;
-							// use decompacted counts (normalized counts) for math
-							double inCount = Math.max(1, (double) e.input.countDecompacted());
-							double outCount = Math.max(1, (double) e.output.countDecompacted());
-							return inCount / outCount; // cost (input) per single normalized output item
-						}));
-					}
-					// If client requested "closest" sorting, ensure we sort by distance from player position
-					if (query != null && query.sortMode != null && "closest".equalsIgnoreCase(query.sortMode) && query.pos != null) {
-						searchResult.exchanges.sort(java.util.Comparator.comparingDouble(e -> {
-							if (e.pos == null) return Double.POSITIVE_INFINITY;
-							return query.pos.distance(e.pos);
-						}));
+					// If client requested "cheapest" or "closest" sorting, ensure we sort
+					// by per-normal-item price or by distance from player position
+					if (isSortMode(query, "cheapest") || (isSortMode(query, "closest") && query.pos != null)) {
+						searchResult.exchanges.sort(comparator(query));
 					}
 				})
 				.exceptionally(Api.logError("Failed searching exchanges"));
+		return Api.propagateCancel(result, request);
+	}
+
+	/**
+	 * Read a search response one exchange at a time, skipping invalid ones and those not matching the query.
+	 * @param skip how many exchanges at the start to skip over, see {@link #searchPage}
+	 */
+	static @NotNull SearchResult readSearchResult(@NotNull Reader in, @NotNull SearchQuery query, int skip) throws IOException {
+		var exchanges = new ArrayList<Exchange>();
+		int received = 0;
+		var reader = new JsonReader(in);
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (!"exchanges".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+				reader.skipValue();
+				continue;
+			}
+			reader.beginArray();
+			while (reader.hasNext()) {
+				if (received++ < skip) {
+					reader.skipValue();
+					continue;
+				}
+				final Exchange exchange = Api.gson.fromJson(reader, Exchange.class);
+				if (exchange == null || exchange.pos == null || exchange.input == null) continue;
+				if (exchange.time < query.updatedAfter) continue;
+				if (!query.allowUnstocked && exchange.stock <= 0) continue;
+				exchange.fixNulls();
+				exchanges.add(exchange);
+			}
+			reader.endArray();
+		}
+		reader.endObject();
+		var result = new SearchResult(exchanges);
+		result.ts = System.currentTimeMillis();
+		// a full page means there may be more
+		result.nextCursor = query.limit > 0 && received >= query.limit ? received : -1;
+		return result;
+	}
+
+	private static boolean isSortMode(@Nullable SearchQuery query, @NotNull String mode) {
+		return query != null && query.sortMode != null && mode.equalsIgnoreCase(query.sortMode);
+	}
+
+	/**
+	 * @return ordering of exchanges for the query's sort mode, or the original order if unknown
+	 */
+	public static @NotNull Comparator<Exchange> comparator(@Nullable SearchQuery query) {
+		if (isSortMode(query, "cheapest")) {
+			return Comparator.comparingDouble(e -> {
+				if (e.output == null) return Double.POSITIVE_INFINITY;
+				// use decompacted counts (normalized counts) for math
+				double inCount = Math.max(1, (double) e.input.countDecompacted());
+				double outCount = Math.max(1, (double) e.output.countDecompacted());
+				return inCount / outCount; // cost (input) per single normalized output item
+			});
+		}
+		if (isSortMode(query, "closest") && query.pos != null) {
+			return Comparator.comparingDouble(e -> {
+				if (e.pos == null) return Double.POSITIVE_INFINITY;
+				return query.pos.distance(e.pos);
+			});
+		}
+		if (isSortMode(query, "latest")) {
+			return Comparator.comparingLong((Exchange e) -> e.time).reversed();
+		}
+		if (isSortMode(query, "stock")) {
+			return Comparator.comparingInt((Exchange e) -> e.stock).reversed();
+		}
+		return (a, b) -> 0;
 	}
 
 	public static class SearchResult {
@@ -54,6 +140,11 @@ public class Exchanges {
 
 		public long ts;
 
+		/**
+		 * Where the next page starts, see {@link Exchanges#searchPage}. -1 if there are no more results.
+		 */
+		public int nextCursor = -1;
+
 		public SearchResult(@NotNull List<Exchange> exchanges) {
 			this.exchanges = exchanges;
 		}
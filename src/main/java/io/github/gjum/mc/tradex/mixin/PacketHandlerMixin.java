@@ -19,7 +19,7 @@ public class PacketHandlerMixin {
 		TradexMod.mod.handleJoinGame(packet);
 	}
 
-	// HEAD so our "find similar" message appears before the final cti message
+	// only hands the line to the chat worker; parsing happens off the client thread
 	@Inject(method = "handleSystemChat", at = @At("HEAD"))
 	protected void handleChat(ClientboundSystemChatPacket packet, CallbackInfo ci) {
 		if (!Minecraft.getInstance().isSameThread()) return; // will be called again on mc thread in a moment
@@ -1,7 +1,6 @@
 package io.github.gjum.mc.tradex.model;
 
 import com.google.gson.annotations.Expose;
-import net.minecraft.core.BlockPos;
 import net.minecraft.world.phys.AABB;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -16,7 +15,7 @@ public class Exchange {
 	public @NotNull Pos pos;
 	/**
 	 * For double chests, location of the adjacent chest block:
-	 * 0=none, 1=east, 2=south. See `getAdjacentPos()`.
+	 * 0=none, 1=east, 2=south. See {@link #getAdjacentPos()}.
 	 * This way we can delete the exchanges at that location in favor of this one.
 	 */
 	@Expose
@@ -27,7 +26,7 @@ public class Exchange {
 	@Expose
 	public int index;
 	/**
-	 * How many exchanges are available in this container .
+	 * How many exchanges are available in this container. See {@link #containerSize()}.
 	 */
 	@Expose
 	public int multi;
@@ -39,6 +38,8 @@ public class Exchange {
 	public @Nullable Rule output;
 	public @Nullable String message;
 
+	private @Nullable AABB highlightBox;
+
 	public void fixNulls() {
 		if (input != null) input.fixNulls();
 		if (output != null) output.fixNulls();
@@ -46,7 +47,15 @@ public class Exchange {
 	}
 
 	/**
-	 * @return output items per input item, counting compacted items as 64
+	 * How many exchanges this container holds, at least up to this one;
+	 * stored exchanges from older versions may lack {@link #multi}.
+	 */
+	public int containerSize() {
+		return Math.max(multi, index);
+	}
+
+	/**
+	 * @return output items per input item, counting each compacted item as {@link Rule#compactMultiplier()} items (8, 16 or 64 by stack size)
 	 */
 	public double getRateOutPerIn() {
 		if (output == null) return 0;
@@ -54,15 +63,67 @@ public class Exchange {
 				/ input.countDecompacted();
 	}
 
-	private BlockPos getAdjacentPos() {
-		if (adjacent == 1) return pos.block().east();
-		if (adjacent == 2) return pos.block().south();
-		return pos.block();
+	/**
+	 * Exchanges are read by the render and search threads once handed out, so changes go into a copy.
+	 * @return a copy with a different stock; rules are shared, they are not changed after parsing
+	 */
+	public @NotNull Exchange withStock(int stock) {
+		var copy = new Exchange();
+		copy.time = time;
+		copy.pos = pos;
+		copy.adjacent = adjacent;
+		copy.index = index;
+		copy.multi = multi;
+		copy.stock = stock;
+		copy.input = input;
+		copy.output = output;
+		copy.message = message;
+		return copy;
+	}
+
+	/**
+	 * Store the exchange under the north/west-most block of its container, see {@link #pos} and {@link #adjacent}.
+	 * @param clicked the block the exchange info was shown for
+	 * @param otherHalf the other block of a double chest, or null for single block containers
+	 */
+	public void setContainer(@NotNull Pos clicked, @Nullable Pos otherHalf) {
+		pos = clicked;
+		adjacent = 0;
+		highlightBox = null;
+		if (otherHalf == null || otherHalf.y != clicked.y) return;
+		int dx = otherHalf.x - clicked.x;
+		int dz = otherHalf.z - clicked.z;
+		if (dz == 0 && Math.abs(dx) == 1) {
+			adjacent = 1;
+			if (dx < 0) pos = otherHalf;
+		} else if (dx == 0 && Math.abs(dz) == 1) {
+			adjacent = 2;
+			if (dz < 0) pos = otherHalf;
+		}
+	}
+
+	/**
+	 * @return the other block of a double chest, or null for single block containers
+	 */
+	public @Nullable Pos getAdjacentPos() {
+		if (adjacent == 1) return new Pos(pos.server, pos.world, pos.x + 1, pos.y, pos.z);
+		if (adjacent == 2) return new Pos(pos.server, pos.world, pos.x, pos.y, pos.z + 1);
+		return null;
 	}
 
 	public AABB aabb() {
 		var aabb = new AABB(pos.block());
-		if (adjacent != 0) aabb = aabb.minmax(new AABB(getAdjacentPos()));
+		var adjacentPos = getAdjacentPos();
+		if (adjacentPos != null) aabb = aabb.minmax(new AABB(adjacentPos.block()));
 		return aabb;
 	}
+
+	/**
+	 * @return bounds of the whole container, like {@link Pos#highlightBox()}. Cached because highlights are drawn every frame.
+	 */
+	public AABB highlightBox() {
+		if (adjacent == 0) return pos.highlightBox();
+		if (highlightBox == null) highlightBox = aabb().inflate(0.01);
+		return highlightBox;
+	}
 }
@@ -10,8 +10,9 @@ public class ExchangeChest {
 	public final ArrayList<@Nullable Exchange> list = new ArrayList<>(1);
 
 	public void add(@NotNull Exchange exchange) {
-		list.ensureCapacity(exchange.multi);
-		while (list.size() < exchange.multi) list.add(null);
+		int size = exchange.containerSize();
+		list.ensureCapacity(size);
+		while (list.size() < size) list.add(null);
 		list.set(exchange.index - 1, exchange);
 	}
 }
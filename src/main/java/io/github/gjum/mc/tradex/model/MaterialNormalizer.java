@@ -0,0 +1,40 @@
+package io.github.gjum.mc.tradex.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.regex.Pattern;
+
+/**
+ * Maps material names and their common aliases to one searchable form, e.g. "Blocks of Iron" to "iron".
+ * The rules are applied in order, each to the result of the previous one.
+ */
+public final class MaterialNormalizer {
+	private record Replacement(Pattern pattern, String replacement) {
+		Replacement(String regex, String replacement) {
+			this(Pattern.compile(regex), replacement);
+		}
+	}
+
+	private static final Replacement[] replacements = {
+			new Replacement("s$", ""), // no plurals
+			new Replacement("^blocks? of | block$", ""),
+			new Replacement("^bottles? +o.? +enchanting$", "exp"),
+			new Replacement("^e?xp(erience)?( bottle)?$", "exp"),
+			new Replacement("^emerald$", "exp"),
+			new Replacement("^reed$", "sugarcane"),
+			new Replacement("^obby$", "obsidian"),
+			new Replacement("^hay *(bale)?$", "wheat"),
+	};
+
+	private MaterialNormalizer() {
+	}
+
+	public static @NotNull String normalize(@NotNull String material) {
+		material = material.toLowerCase();
+		for (var replacement : replacements) {
+			var matcher = replacement.pattern.matcher(material);
+			if (matcher.find()) material = matcher.replaceAll(replacement.replacement);
+		}
+		return material;
+	}
+}
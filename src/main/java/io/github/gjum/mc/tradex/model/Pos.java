@@ -2,11 +2,18 @@ package io.github.gjum.mc.tradex.model;
 
 import com.google.gson.annotations.Expose;
 import net.minecraft.core.BlockPos;
+import net.minecraft.world.phys.AABB;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.Objects;
 
 public class Pos {
+	private static final Logger LOG = LoggerFactory.getLogger("tradex");
+
 	@Expose
 	public final @NotNull String server;
 	@Expose
@@ -18,6 +25,33 @@ public class Pos {
 	@Expose
 	public final int z;
 
+	private @Nullable AABB highlightBox;
+	/**
+	 * Immutable, so threads reading {@link #key()} never see a key paired with the wrong generation.
+	 * Null if not computed yet, also for instances created by Gson, which skips field initializers.
+	 */
+	private @Nullable CachedKey cachedKey;
+
+	/**
+	 * @param generation {@link #generation} the key was computed in, keys from before {@link #resetDimensionIds()} are recomputed
+	 */
+	private record CachedKey(int generation, long key) {}
+
+	/**
+	 * Ids for server+world pairs seen since the last {@link #resetDimensionIds()}, see {@link #key()}.
+	 */
+	private static final HashMap<String, Integer> dimensionIds = new HashMap<>();
+	private static volatile int generation = 1;
+
+	private static final int DIMENSION_BITS = 8;
+	private static final int XZ_BITS = 22;
+	private static final int Y_BITS = 12;
+	private static final int Z_SHIFT = Y_BITS;
+	private static final int X_SHIFT = Z_SHIFT + XZ_BITS;
+	private static final int DIMENSION_SHIFT = X_SHIFT + XZ_BITS;
+	private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+	private static final long Y_MASK = (1L << Y_BITS) - 1;
+
 	public Pos(@NotNull String server, @NotNull String world, int x, int y, int z) {
 		this.server = server;
 		this.world = world;
@@ -26,6 +60,59 @@ public class Pos {
 		this.z = z;
 	}
 
+	/**
+	 * Packs an interned server+world id (8 bits), x and z (22 bits each, ±2 million blocks) and y (12 bits)
+	 * into one long, for primitive-keyed maps and sets. Computed once per instance and session.
+	 * Positions only get distinct keys within those ranges and the first 256 server+world pairs
+	 * seen since joining, see {@link #dimensionId}.
+	 * <p>
+	 * Keys change after {@link #resetDimensionIds()}, so they must only be used in maps that are cleared on join.
+	 * {@link #equals} and {@link #hashCode} do not depend on them.
+	 */
+	public long key() {
+		final int currentGeneration = generation;
+		var cached = cachedKey;
+		if (cached == null || cached.generation != currentGeneration) {
+			cached = new CachedKey(currentGeneration, key(dimensionId(server, world), x, y, z));
+			cachedKey = cached;
+		}
+		return cached.key;
+	}
+
+	public static long key(int dimension, int x, int y, int z) {
+		return ((long) dimension << DIMENSION_SHIFT)
+				| ((x & XZ_MASK) << X_SHIFT)
+				| ((z & XZ_MASK) << Z_SHIFT)
+				| (y & Y_MASK);
+	}
+
+	/**
+	 * Ids are only unique for the first 256 server+world pairs since {@link #resetDimensionIds()},
+	 * which is called on join, so this is only exceeded by visiting that many worlds in one session.
+	 * Beyond that, ids are reused and positions in different worlds may share keys.
+	 */
+	public static int dimensionId(@NotNull String server, @NotNull String world) {
+		synchronized (dimensionIds) {
+			return dimensionIds.computeIfAbsent(server + "\n" + world, k -> {
+				int id = dimensionIds.size();
+				if (id == 1 << DIMENSION_BITS) {
+					LOG.warn("Seen more than {} worlds since joining, highlights of different worlds may mix up", id);
+				}
+				return id;
+			}) & ((1 << DIMENSION_BITS) - 1);
+		}
+	}
+
+	/**
+	 * Start over with dimension ids, e.g. when joining a server. Keys computed before are recomputed when next used.
+	 */
+	public static void resetDimensionIds() {
+		synchronized (dimensionIds) {
+			dimensionIds.clear();
+			generation++;
+		}
+	}
+
 	public boolean equals(Object other) {
 		if (this == other) {
 			return true;
@@ -70,4 +157,15 @@ public class Pos {
 	public BlockPos block() {
 		return new BlockPos(x, y, z);
 	}
+
+	/**
+	 * @return block bounds inflated by 0.01, to show above the block without z fighting.
+	 * Cached because highlights are drawn every frame.
+	 */
+	public AABB highlightBox() {
+		if (highlightBox == null) {
+			highlightBox = new AABB(x - 0.01, y - 0.01, z - 0.01, x + 1.01, y + 1.01, z + 1.01);
+		}
+		return highlightBox;
+	}
 }
@@ -5,9 +5,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * Only contains data that is shown in exchange info chat messages.
+ * <p>
+ * The fields are only written while parsing or loading the rule, before it is shared with other threads.
+ * Writers must call {@link #invalidate()} afterwards, so derived values like {@link #getSpec()} are computed again.
  */
 public class Rule {
 	@Expose
@@ -53,6 +57,18 @@ public class Rule {
 	public @NotNull List<String> lore = new ArrayList<>();
 	public @Nullable String message;
 
+	private static final Pattern compactedLorePattern = Pattern.compile("compacted item|\\bcompacted\\b", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * Values derived from the fields above, computed together and never modified,
+	 * so readers on other threads (route search, price index) always see a consistent set.
+	 */
+	private record Derived(int stackSizeVersion, boolean compacted, int compactMultiplier, @NotNull String spec) {}
+
+	// Cached, because sorting and filtering search results query them many times per rule.
+	// Not initialized by Gson, so it starts out null.
+	private transient volatile @Nullable Derived derived;
+
 	public Rule(int count, @NotNull String material) {
 		this.count = count;
 		this.material = material;
@@ -63,15 +79,39 @@ public class Rule {
 		if (requiredEnchants == null) requiredEnchants = new HashMap<>();
 		if (excludedEnchants == null) excludedEnchants = new HashSet<>();
 		if (lore == null) lore = new ArrayList<>();
+		invalidate();
+	}
+
+	/**
+	 * Must be called after changing any field, so derived values like {@link #getSpec()} are computed again.
+	 */
+	public void invalidate() {
+		derived = null;
+	}
+
+	private @NotNull Derived derive() {
+		var d = derived;
+		final int stackSizeVersion = StackSizeTable.version();
+		if (d != null && d.stackSizeVersion == stackSizeVersion) return d;
+		final boolean compacted = computeCompacted();
+		final int multiplier = compacted ? computeCompactMultiplier() : 1;
+		// racing threads compute equal values, whichever is published last wins
+		d = new Derived(stackSizeVersion, compacted, multiplier, computeSpec(compacted));
+		derived = d;
+		return d;
 	}
 
 	public boolean isCompacted() {
+		return derive().compacted;
+	}
+
+	private boolean computeCompacted() {
 		// Heuristic detection for "compacted" items.
 		// Check lore first (strong signal), then material and customName.
-		if (lore != null && !lore.isEmpty()) {
-			String loreText = String.join(" ", lore);
-			if (loreText.matches("(?i).*compacted item.*")) return true;
-			if (loreText.matches("(?i).*\\bcompacted\\b.*")) return true;
+		if (lore != null) {
+			for (String line : lore) {
+				if (compactedLorePattern.matcher(line).find()) return true;
+			}
 		}
 		if (material != null && material.toLowerCase().contains("compacted")) return true;
 		if (customName != null && customName.toLowerCase().contains("compacted")) return true;
@@ -83,12 +123,17 @@ public class Rule {
 	}
 
 	public int compactMultiplier() {
-		if (!isCompacted()) return 1;
-		// var key = ResourceKey.create(Registries.ITEM, ResourceLocation.withDefaultNamespace(material));
-		// var item = mc.level.registryAccess().get(key).map(Holder.Reference::value).orElse(Items.STONE);
-		// return switch (item.getDefaultMaxStackSize()) { case 1 -> 8; case 16 -> 16; default -> 64; };
+		return derive().compactMultiplier;
+	}
+
+	private int computeCompactMultiplier() {
 		if (bookAuthor != null) return 8;
 		if (potionName != null) return 8;
+		int stackSize = StackSizeTable.get(material);
+		if (stackSize == 1) return 8;
+		if (stackSize == 16) return 16;
+		if (stackSize > 0) return 64;
+		// not in the item registry (or not loaded yet), guess from the name
 		if (material.equals("Ender Pearl")) return 8;
 		if (material.equals("Bow")) return 8;
 		if (material.endsWith(" Pickaxe")) return 8;
@@ -101,4 +146,30 @@ public class Rule {
 		if (material.endsWith("Egg")) return 16;
 		return 64;
 	}
+
+	/**
+	 * @return lowercase description of the item, for matching search queries against. See {@link SearchQuery#getSpecForRule(Rule)}
+	 */
+	public @NotNull String getSpec() {
+		return derive().spec;
+	}
+
+	private @NotNull String computeSpec(boolean compacted) {
+		var s = new StringBuilder();
+		if (compacted) s.append(" compacted");
+		if (requiredEnchants != null && !requiredEnchants.isEmpty()) {
+			s.append(" enchanted ");
+			requiredEnchants.entrySet().stream()
+					.map(e -> e.getKey() + e.getValue())
+					.sorted()
+					.forEach(s::append);
+		}
+		if (potionName != null) s.append(' ').append(potionName);
+		s.append(' ').append(MaterialNormalizer.normalize(material));
+		if (customName != null) s.append(" \"").append(customName).append('"');
+		else if (bookGeneration != null) s.append(" \"").append(bookGeneration).append('"');
+		if (bookAuthor != null) s.append(" by ").append(bookAuthor);
+		if (lore != null && !lore.isEmpty()) s.append(' ').append(String.join(" ", lore));
+		return s.toString().trim().toLowerCase();
+	}
 }
@@ -4,8 +4,6 @@ import com.google.gson.annotations.Expose;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.stream.Collectors;
-
 public class SearchQuery {
 	@Expose
 	public @Nullable String input;
@@ -40,35 +38,16 @@ public class SearchQuery {
 		this.limit = limit;
 	}
 
+	public @NotNull SearchQuery withLimit(int limit) {
+		return new SearchQuery(input, output, pos, updatedAfter, allowUnstocked, limit, sortMode);
+	}
+
 	public static @NotNull String getSpecForRule(@Nullable Rule rule) {
 		if (rule == null) return "";
-		String s = "";
-		if (rule.isCompacted()) s += " compacted";
-		if (!rule.requiredEnchants.isEmpty()) {
-			s += " enchanted " + rule.requiredEnchants.entrySet().stream()
-					.map(e -> e.getKey() + e.getValue())
-					.sorted()
-					.collect(Collectors.joining(""));
-		}
-		if (rule.potionName != null) s += " " + rule.potionName;
-		s += " " + normalizeMaterialNames(rule.material);
-		if (rule.customName != null) s += " \"" + rule.customName + "\"";
-		else if (rule.bookGeneration != null) s += " \"" + rule.bookGeneration + "\"";
-		if (rule.bookAuthor != null) s += " by " + rule.bookAuthor;
-		if (!rule.lore.isEmpty()) s += " " + String.join(" ", rule.lore);
-		return s.trim().toLowerCase();
+		return rule.getSpec();
 	}
 
 	public static @NotNull String normalizeMaterialNames(@NotNull String material) {
-		material = material.toLowerCase();
-		material = material.replaceAll("s$", ""); // no plurals
-		material = material.replaceAll("^blocks? of | block$", "");
-		material = material.replaceAll("^bottles? +o.? +enchanting$", "exp");
-		material = material.replaceAll("^e?xp(erience)?( bottle)?$", "exp");
-		material = material.replaceAll("^emerald$", "exp");
-		material = material.replaceAll("^reed$", "sugarcane");
-		material = material.replaceAll("^obby$", "obsidian");
-		material = material.replaceAll("^hay *(bale)?$", "wheat");
-		return material;
+		return MaterialNormalizer.normalize(material);
 	}
 }
@@ -0,0 +1,47 @@
+package io.github.gjum.mc.tradex.model;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Max stack size of each item, by material name as shown in exchange chat ("Ender Pearl"),
+ * built from the item registry. Items are found by their registry id with spaces ("ender pearl")
+ * and by their display name in the client's language. Safe to read from any thread.
+ */
+public final class StackSizeTable {
+	private static volatile Object2IntOpenHashMap<String> sizes = new Object2IntOpenHashMap<>();
+	/**
+	 * Incremented on every rebuild, so cached values derived from the table can be recomputed.
+	 */
+	private static volatile int version = 0;
+
+	private StackSizeTable() {
+	}
+
+	public static void rebuild() {
+		var table = new Object2IntOpenHashMap<String>();
+		for (var item : BuiltInRegistries.ITEM) {
+			int size = item.getDefaultMaxStackSize();
+			table.put(BuiltInRegistries.ITEM.getKey(item).getPath().replace('_', ' '), size);
+			table.putIfAbsent(item.getDefaultInstance().getHoverName().getString().toLowerCase(), size);
+		}
+		table.trim();
+		sizes = table;
+		version++;
+	}
+
+	public static int version() {
+		return version;
+	}
+
+	/**
+	 * @param material may encode durability as colon-separated number ("Wool:2"), which is ignored
+	 * @return max stack size, or 0 if unknown
+	 */
+	public static int get(@NotNull String material) {
+		int colon = material.indexOf(':');
+		if (colon >= 0) material = material.substring(0, colon);
+		return sizes.getInt(material.trim().toLowerCase());
+	}
+}
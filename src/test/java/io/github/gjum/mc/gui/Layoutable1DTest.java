@@ -0,0 +1,47 @@
+package io.github.gjum.mc.gui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Layoutable1DTest {
+	private static int[] layout(int available, Layoutable1D... cells) {
+		Layoutable1D.computeLayout(available, cells);
+		int[] sizes = new int[cells.length];
+		for (int i = 0; i < cells.length; i++) sizes[i] = cells[i].size;
+		return sizes;
+	}
+
+	@Test
+	void distributesByWeightWithinMax() {
+		assertArrayEquals(new int[]{10, 30, 60}, layout(100,
+				new Layoutable1D(10, 10, 0),
+				new Layoutable1D(0, 30, 1),
+				new Layoutable1D(0, 999, 1)));
+	}
+
+	@Test
+	void givesRoundingRemainderToHeaviestFirst() {
+		// 10 pixels by weights 1:2:1 is 2.5:5:2.5, rounded down 2+5+2, one left
+		assertArrayEquals(new int[]{2, 6, 2}, layout(10,
+				new Layoutable1D(0, 99, 1),
+				new Layoutable1D(0, 99, 2),
+				new Layoutable1D(0, 99, 1)));
+		// equal weights: earlier cells first
+		assertArrayEquals(new int[]{4, 3, 3}, layout(10,
+				new Layoutable1D(0, 99, 1),
+				new Layoutable1D(0, 99, 1),
+				new Layoutable1D(0, 99, 1)));
+	}
+
+	@Test
+	void reusedCellsStartOver() {
+		var cells = new Layoutable1D[]{new Layoutable1D(0, 50, 1), new Layoutable1D(0, 50, 1)};
+		assertEquals(100, Layoutable1D.computeLayout(200, cells));
+		cells[0].reset(5, 5, 0);
+		cells[1].reset(0, 50, 1);
+		assertEquals(25, Layoutable1D.computeLayout(25, cells));
+		assertEquals(5, cells[0].size);
+		assertEquals(20, cells[1].size);
+	}
+}
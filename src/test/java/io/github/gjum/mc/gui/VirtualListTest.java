@@ -0,0 +1,25 @@
+package io.github.gjum.mc.gui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualListTest {
+	@Test
+	void columnWeightsSurviveClear() {
+		var list = new VirtualList<String>(10, 0, item -> List.of())
+				.setColumnWeight(1, 1)
+				.setColumnWeight(3, 2);
+		list.addItems(List.of("a", "b"));
+
+		list.clear();
+
+		assertEquals(0, list.getItemCount());
+		assertEquals(0, list.getColumnWeight(0));
+		assertEquals(1, list.getColumnWeight(1));
+		assertEquals(0, list.getColumnWeight(2));
+		assertEquals(2, list.getColumnWeight(3));
+	}
+}
@@ -1,6 +1,7 @@
 package io.github.gjum.mc.tradex;
 
 import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
 import net.minecraft.SharedConstants;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.network.chat.Component;
@@ -11,6 +12,7 @@ import com.google.gson.JsonParser;
 //?}
 import net.minecraft.server.Bootstrap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -36,12 +38,8 @@ class ChatHandlerTest {
 			createdExchange = exchange;
 		}
 
-		public @NotNull String getCurrentServerName() {
-			return "SERVER";
-		}
-
-		public @NotNull String getCurrentWorldName() {
-			return "WORLD";
+		public @Nullable Pos getOtherChestHalf(@NotNull Pos pos) {
+			return null;
 		}
 
 		public void sendTabComplete(int id) {
@@ -77,7 +75,7 @@ class ChatHandlerTest {
 				locationJson,
 		};
 		for (String json : chats) {
-			handler.handeChat(parseChat(json));
+			handler.handeChat(parseChat(json), "SERVER", "WORLD");
 		}
 
 		assertNull(handler.parsingExchange);
@@ -104,14 +102,38 @@ class ChatHandlerTest {
 		var mod = new ModMock();
 		var handler = new ChatHandler(mod);
 
-		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"(2/3) exchanges present.\"}],\"text\":\"\"}"));
-		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"Input: \"},{\"color\":\"white\",\"text\":\"42 Diamond Pickaxe\"},{\"italic\":true,\"color\":\"white\",\"text\":\" \\\"custom name\"},{\"italic\":true,\"color\":\"white\",\"text\":\"\\\"\"}],\"text\":\"\"}"));
-		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"Output: \"},{\"color\":\"white\",\"text\":\"2 Stone\"},{\"italic\":true,\"color\":\"white\",\"text\":\" \\\"Shadno Stone\"},{\"italic\":true,\"color\":\"white\",\"text\":\"\\\"\"}],\"text\":\"\"}"));
-		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"1 exchange available.\"}],\"text\":\"\"}"));
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"(2/3) exchanges present.\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"Input: \"},{\"color\":\"white\",\"text\":\"42 Diamond Pickaxe\"},{\"italic\":true,\"color\":\"white\",\"text\":\" \\\"custom name\"},{\"italic\":true,\"color\":\"white\",\"text\":\"\\\"\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"Output: \"},{\"color\":\"white\",\"text\":\"2 Stone\"},{\"italic\":true,\"color\":\"white\",\"text\":\" \\\"Shadno Stone\"},{\"italic\":true,\"color\":\"white\",\"text\":\"\\\"\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"1 exchange available.\"}],\"text\":\"\"}"), "SERVER", "WORLD");
 
 		assertNotNull(handler.parsingExchange);
 	}
 
+	@Test
+	void ignoresUnrelatedChat() {
+		var mod = new ModMock();
+		var handler = new ChatHandler(mod);
+
+		// right text, wrong color
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"white\",\"text\":\"(2/3) exchanges present.\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		assertNull(handler.parsingExchange);
+
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"(1/1) exchange present.\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"Input: \"},{\"color\":\"white\",\"text\":\"1 Diamond\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"yellow\",\"text\":\"<Gjum> Input: 5 Stone\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"extra\":[{\"color\":\"gray\",\"text\":\"Efficiency 3\"}],\"text\":\"\"}"), "SERVER", "WORLD");
+		handler.handeChat(parseChat("{\"text\":\"Condition: Damaged\"}"), "SERVER", "WORLD");
+
+		var exchange = handler.parsingExchange;
+		assertNotNull(exchange);
+		assertEquals("Diamond", exchange.input.material);
+		assertEquals(1, exchange.input.count);
+		assertTrue(exchange.input.requiredEnchants.isEmpty());
+		assertNull(exchange.input.condition);
+		assertNull(mod.createdExchange);
+	}
+
 	private static Component parseChat(String json) {
 		//? if >=1.21.6 {
 		var registryOps = HolderLookup.Provider.create(Stream.of()).createSerializationContext(JsonOps.INSTANCE);
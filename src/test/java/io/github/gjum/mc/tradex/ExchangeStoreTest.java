@@ -0,0 +1,65 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.github.gjum.mc.tradex.TestExchanges.exchange;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeStoreTest {
+	@TempDir
+	Path tempDir;
+
+	private static Exchange stone(int x, int index, int stock) {
+		var exchange = exchange(x).withStock(stock);
+		exchange.index = index;
+		exchange.multi = 2;
+		return exchange;
+	}
+
+	@Test
+	void reloadsLatestExchangePerKey() throws Exception {
+		var path = tempDir.resolve("exchanges.jsonl");
+		var store = new ExchangeStore(path);
+		store.open().get();
+		store.put(stone(1, 1, 5));
+		store.put(stone(1, 1, 4));
+		store.put(stone(1, 2, 9));
+		store.put(stone(2, 1, 3));
+		store.flush().get();
+		assertEquals(4, Files.readAllLines(path).size());
+
+		var reopened = new ExchangeStore(path);
+		reopened.open().get();
+		assertEquals(3, reopened.size());
+		var exchange = reopened.get(new Pos("SERVER", "WORLD", 1, 64, 0), 1);
+		assertNotNull(exchange);
+		assertEquals(4, exchange.stock);
+		assertEquals("Stone", exchange.output.material);
+		assertTrue(reopened.getAll("OTHER SERVER").isEmpty());
+	}
+
+	@Test
+	void compactionKeepsOnlyLiveEntries() throws Exception {
+		var path = tempDir.resolve("exchanges.jsonl");
+		var store = new ExchangeStore(path);
+		store.open().get();
+		for (int stock = 10; stock > 0; stock--) {
+			store.put(stone(1, 1, stock));
+		}
+		store.compact().get();
+		assertEquals(1, Files.readAllLines(path).size());
+
+		store.put(stone(1, 2, 7));
+		store.flush().get();
+		var reopened = new ExchangeStore(path);
+		reopened.open().get();
+		assertEquals(2, reopened.size());
+		assertEquals(1, reopened.get(new Pos("SERVER", "WORLD", 1, 64, 0), 1).stock);
+	}
+}
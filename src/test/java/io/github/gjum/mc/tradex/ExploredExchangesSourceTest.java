@@ -0,0 +1,78 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Pos;
+import org.junit.jupiter.api.Test;
+
+import static io.github.gjum.mc.tradex.TestExchanges.exchange;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExploredExchangesSourceTest {
+	@Test
+	void purgesHighlightsAfterLifetime() {
+		var source = new ExploredExchangesSource();
+		var player = new Pos("SERVER", "WORLD", 0, 64, 0);
+		long start = System.currentTimeMillis();
+		var a = exchange(1);
+		var b = exchange(2);
+		source.addExchange(a);
+		source.addExchange(b);
+
+		source.tick(player, start - 1000 + 15_000, 15, 0);
+		assertEquals(2, source.getSnapshot().size());
+
+		source.markSuppressed(b.pos);
+		source.unsuppress(b.pos); // restarts b's lifetime
+		source.tick(player, System.currentTimeMillis() + 15_001, 15, 0);
+		assertTrue(source.getSnapshot().isEmpty());
+		assertTrue(source.isSuppressed(a.pos));
+		assertNull(source.getChest(a.pos));
+	}
+
+	@Test
+	void refreshedHighlightOutlivesItsFirstLifetime() throws Exception {
+		var source = new ExploredExchangesSource();
+		var player = new Pos("SERVER", "WORLD", 0, 64, 0);
+		var a = exchange(1);
+		source.addExchange(a);
+		Thread.sleep(5);
+		long refreshedAt = System.currentTimeMillis();
+		source.unsuppress(a.pos);
+
+		source.tick(player, refreshedAt + 1000 - 1, 1, 0);
+		assertEquals(1, source.getSnapshot().size());
+		source.tick(player, System.currentTimeMillis() + 1000 + 1, 1, 0);
+		assertTrue(source.getSnapshot().isEmpty());
+	}
+
+	@Test
+	void mergesDoubleChestHalves() {
+		var source = new ExploredExchangesSource();
+		var east = exchange(2);
+		source.addExchange(east); // explored before double chests were detected
+
+		var merged = exchange(2);
+		merged.setContainer(east.pos, new Pos("SERVER", "WORLD", 1, 64, 0));
+		assertEquals(1, merged.pos.x);
+		assertEquals(1, merged.adjacent);
+		assertEquals(east.pos, merged.getAdjacentPos());
+		source.addExchange(merged);
+
+		assertEquals(1, source.getSnapshot().size());
+		assertNull(source.getChest(east.pos));
+		assertNotNull(source.getChest(merged.pos));
+	}
+
+	@Test
+	void purgesHighlightsOutOfRange() {
+		var source = new ExploredExchangesSource();
+		var near = exchange(10);
+		var far = exchange(100);
+		source.addExchange(near);
+		source.addExchange(far);
+
+		source.tick(new Pos("SERVER", "WORLD", 0, 64, 0), System.currentTimeMillis(), 0, 50);
+		assertEquals(1, source.getSnapshot().size());
+		assertTrue(source.getSnapshot().contains(near.pos));
+		assertTrue(source.isSuppressed(far.pos));
+	}
+}
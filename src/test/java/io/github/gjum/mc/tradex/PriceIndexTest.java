@@ -0,0 +1,57 @@
+package io.github.gjum.mc.tradex;
+
+import org.junit.jupiter.api.Test;
+
+import static io.github.gjum.mc.tradex.TestExchanges.exchange;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceIndexTest {
+	@Test
+	void aggregatesRatesPerItemAndCurrency() {
+		var index = new PriceIndex();
+		index.add(exchange(1, 1, "Diamond", 64, "Stone"));
+		index.add(exchange(2, 1, "Diamond", 32, "Stone"));
+		index.add(exchange(3, 2, "Diamond", 32, "Stone"));
+		index.add(exchange(4, 1, "Diamond", 16, "Stone Bricks"));
+
+		var prices = index.lookup("stone");
+		assertEquals(2, prices.size());
+		var stone = prices.get(0);
+		assertEquals("stone", stone.output());
+		assertEquals("diamond", stone.input());
+		assertEquals(3, stone.count());
+		assertEquals(1.0 / 64, stone.min());
+		assertEquals(1.0 / 32, stone.median());
+		assertEquals(2.0 / 32, stone.max());
+		assertEquals("stone brick", prices.get(1).output());
+	}
+
+	@Test
+	void replacesRateOfExchangeSeenAgain() {
+		var index = new PriceIndex();
+		index.add(exchange(1, 1, "Diamond", 64, "Stone"));
+		index.add(exchange(1, 1, "Diamond", 16, "Stone"));
+
+		var stone = index.mostTraded("Stone");
+		assertNotNull(stone);
+		assertEquals(1, stone.count());
+		assertEquals(1.0 / 16, stone.min());
+
+		index.clear();
+		assertNull(index.mostTraded("Stone"));
+	}
+
+	@Test
+	void findsCompactedItemsPricedPerCompactedItem() {
+		var index = new PriceIndex();
+		var compacted = exchange(1, 10, "Diamond", 1, "Iron Ingot");
+		compacted.output.lore.add("Compacted Item");
+		compacted.output.invalidate();
+		index.add(compacted);
+
+		var prices = index.lookup("iron");
+		assertEquals(1, prices.size());
+		assertEquals("compacted iron ingot", prices.get(0).output());
+		assertEquals(10, prices.get(0).min());
+	}
+}
@@ -0,0 +1,55 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static io.github.gjum.mc.tradex.TestExchanges.exchange;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShoppingPlannerTest {
+	@Test
+	void parsesShoppingList() {
+		assertEquals(List.of(
+				new ShoppingPlanner.Item("iron ingot", 64),
+				new ShoppingPlanner.Item("diamond", 2),
+				new ShoppingPlanner.Item("beacon", 1)
+		), ShoppingPlanner.parseList("64 iron ingot, 2x diamond,, beacon "));
+	}
+
+	@Test
+	void buysFromClosestStockedShopsAndOrdersStops() {
+		var start = new Pos("SERVER", "world", 0, 64, 0);
+		var candidates = new LinkedHashMap<ShoppingPlanner.Item, List<Exchange>>();
+		candidates.put(new ShoppingPlanner.Item("Iron Ingot", 96), List.of(
+				exchange("world", 100, 1, "Diamond", 32, "Iron Ingot").withStock(5),
+				exchange("world", 10, 1, "Diamond", 32, "Iron Ingot").withStock(2),
+				exchange("world", 20, 1, "Diamond", 32, "Iron Ingot").withStock(0)));
+		candidates.put(new ShoppingPlanner.Item("Glass", 10), List.of(
+				exchange("world_nether", 5, 1, "Diamond", 64, "Glass").withStock(1),
+				exchange("world", 50, 1, "Diamond", 8, "Glass").withStock(1)));
+
+		var plan = ShoppingPlanner.plan(candidates, start);
+
+		assertEquals(List.of(10, 50, 100, 5), plan.stops().stream().map(s -> s.pos().x).toList());
+		assertEquals(2, plan.stops().get(0).purchases().get(0).trades());
+		assertEquals(1, plan.stops().get(2).purchases().get(0).trades());
+		assertEquals(100 + ShoppingPlanner.WORLD_CHANGE_DISTANCE, plan.distance(), 1e-9);
+		assertTrue(plan.missing().isEmpty());
+	}
+
+	@Test
+	void reportsMissingItems() {
+		var candidates = new LinkedHashMap<ShoppingPlanner.Item, List<Exchange>>();
+		var item = new ShoppingPlanner.Item("Beacon", 3);
+		candidates.put(item, List.of(exchange("world", 10, 1, "Diamond", 1, "Beacon").withStock(1)));
+
+		var plan = ShoppingPlanner.plan(candidates, null);
+
+		assertEquals(1, plan.stops().size());
+		assertEquals(2, plan.missing().get(item));
+	}
+}
@@ -0,0 +1,36 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Exchange;
+import io.github.gjum.mc.tradex.model.Pos;
+import io.github.gjum.mc.tradex.model.Rule;
+
+/**
+ * Exchanges for tests: seen just now, the only exchange in its chest at (x, 64, 0), with 10 trades in stock.
+ * Use {@link Exchange#withStock} for a different stock.
+ */
+final class TestExchanges {
+	private TestExchanges() {}
+
+	static Exchange exchange(String world, int x, int inCount, String inMaterial, int outCount, String outMaterial) {
+		var exchange = new Exchange();
+		exchange.time = System.currentTimeMillis();
+		exchange.pos = new Pos("SERVER", world, x, 64, 0);
+		exchange.index = 1;
+		exchange.multi = 1;
+		exchange.stock = 10;
+		exchange.input = new Rule(inCount, inMaterial);
+		exchange.output = new Rule(outCount, outMaterial);
+		return exchange;
+	}
+
+	static Exchange exchange(int x, int inCount, String inMaterial, int outCount, String outMaterial) {
+		return exchange("WORLD", x, inCount, inMaterial, outCount, outMaterial);
+	}
+
+	/**
+	 * Sells a stack of stone for a diamond.
+	 */
+	static Exchange exchange(int x) {
+		return exchange(x, 1, "Diamond", 64, "Stone");
+	}
+}
@@ -0,0 +1,51 @@
+package io.github.gjum.mc.tradex;
+
+import io.github.gjum.mc.tradex.model.Pos;
+import org.junit.jupiter.api.Test;
+
+import static io.github.gjum.mc.tradex.TestExchanges.exchange;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeRoutesTest {
+	@Test
+	void findsBestChainBetweenItems() {
+		var routes = new TradeRoutes();
+		routes.add(exchange(1, 1, "Diamond", 32, "Iron Ingot"));
+		routes.add(exchange(2, 8, "Iron Ingot", 1, "Emerald"));
+		routes.add(exchange(3, 1, "Diamond", 2, "Emerald"));
+
+		var route = routes.findPath("diamond", "emerald", null, 0).join();
+		assertNotNull(route);
+		assertEquals(2, route.steps().size());
+		assertEquals(4, route.gain(), 1e-9);
+		assertEquals("diamond", route.from());
+		assertEquals("emerald", route.to());
+
+		assertNull(routes.findPath("emerald", "diamond", null, 0).join());
+	}
+
+	@Test
+	void usesExchangesInRangeWhenTheBestIsTooFar() {
+		var routes = new TradeRoutes();
+		routes.add(exchange(1, 1, "Diamond", 2, "Emerald"));
+		routes.add(exchange(1000, 1, "Diamond", 4, "Emerald"));
+		var center = new Pos("SERVER", "WORLD", 0, 64, 0);
+
+		assertEquals(4, routes.findPath("diamond", "emerald", center, 0).join().gain(), 1e-9);
+		assertEquals(2, routes.findPath("diamond", "emerald", center, 100).join().gain(), 1e-9);
+	}
+
+	@Test
+	void findsProfitableCycleOnce() {
+		var routes = new TradeRoutes();
+		routes.add(exchange(1, 1, "Diamond", 32, "Iron Ingot"));
+		routes.add(exchange(2, 16, "Iron Ingot", 1, "Diamond"));
+		routes.add(exchange(3, 1, "Diamond", 1, "Emerald"));
+
+		var cycles = routes.findCycles(null, 0, 10).join();
+		assertEquals(1, cycles.size());
+		assertEquals(2, cycles.get(0).gain(), 1e-9);
+		assertEquals(2, cycles.get(0).steps().size());
+		assertEquals(10, cycles.get(0).maxRuns());
+	}
+}
@@ -0,0 +1,74 @@
+package io.github.gjum.mc.tradex;
+
+import com.google.gson.JsonElement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.github.gjum.mc.tradex.TestExchanges.exchange;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadQueueTest {
+	@TempDir
+	Path tempDir;
+
+	private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) fail("timed out");
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	void coalescesUpdatesOfTheSameExchange() throws Exception {
+		List<JsonElement> uploaded = Collections.synchronizedList(new ArrayList<>());
+		var queue = new UploadQueue(tempDir.resolve("queue.jsonl"), json -> {
+			uploaded.add(json);
+			return CompletableFuture.completedFuture(null);
+		}, 50, 10);
+		var exchange = exchange(1).withStock(64);
+		for (int i = 0; i < 10; i++) {
+			exchange.stock--;
+			queue.add(exchange);
+		}
+		waitUntil(() -> queue.size() == 0);
+		assertEquals(1, uploaded.size());
+		assertEquals(54, uploaded.get(0).getAsJsonObject().get("stock").getAsInt());
+	}
+
+	@Test
+	void retriesFailedUploads() throws Exception {
+		var attempts = new AtomicInteger();
+		var queue = new UploadQueue(tempDir.resolve("queue.jsonl"), json -> {
+			if (attempts.incrementAndGet() < 3) return CompletableFuture.failedFuture(new java.io.IOException("offline"));
+			return CompletableFuture.completedFuture(null);
+		}, 10, 10);
+		queue.add(exchange(1).withStock(5));
+		waitUntil(() -> queue.size() == 0);
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	void resumesPendingUploadsAfterRestart() throws Exception {
+		var path = tempDir.resolve("queue.jsonl");
+		var offline = new UploadQueue(path, json -> new CompletableFuture<>(), 10, 10);
+		offline.add(exchange(1).withStock(5));
+		waitUntil(() -> path.toFile().exists());
+
+		var uploaded = new AtomicInteger();
+		var restarted = new UploadQueue(path, json -> {
+			uploaded.incrementAndGet();
+			return CompletableFuture.completedFuture(null);
+		}, 10, 10);
+		restarted.open().get();
+		waitUntil(() -> restarted.size() == 0);
+		assertEquals(1, uploaded.get());
+	}
+}
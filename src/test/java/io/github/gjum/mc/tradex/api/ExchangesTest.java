@@ -0,0 +1,70 @@
+package io.github.gjum.mc.tradex.api;
+
+import io.github.gjum.mc.tradex.model.SearchQuery;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangesTest {
+	private static String exchangeJson(int x, long time, int stock) {
+		return """
+				{"time":%d,"pos":{"server":"SERVER","world":"WORLD","x":%d,"y":64,"z":0},"index":0,"multi":1,"stock":%d,
+				"input":{"count":1,"material":"Diamond"},"output":{"count":64,"material":"Stone"}}
+				""".formatted(time, x, stock);
+	}
+
+	@Test
+	void readsExchangesAndSkipsUnmatched() throws Exception {
+		var json = "{\"extra\":{\"nested\":[1,2]},\"exchanges\":["
+				+ exchangeJson(1, 2000, 5) + ","
+				+ exchangeJson(2, 2000, 0) + "," // unstocked
+				+ exchangeJson(3, 500, 5) + "," // too old
+				+ "{\"time\":2000,\"stock\":5}," // no position
+				+ exchangeJson(4, 3000, 1)
+				+ "],\"count\":5}";
+		var query = new SearchQuery("", "", null, 1000, false, 100, null);
+
+		var result = Exchanges.readSearchResult(new StringReader(json), query, 0);
+
+		assertEquals(2, result.exchanges.size());
+		var first = result.exchanges.get(0);
+		assertEquals(1, first.pos.x);
+		assertEquals(1, first.index); // fixNulls applied
+		assertEquals("Stone", first.output.material);
+		assertEquals(4, result.exchanges.get(1).pos.x);
+		assertTrue(result.ts > 0);
+		assertEquals(-1, result.nextCursor);
+	}
+
+	@Test
+	void skipsPreviousPages() throws Exception {
+		var json = "{\"exchanges\":["
+				+ exchangeJson(1, 2000, 5) + ","
+				+ exchangeJson(2, 2000, 5) + ","
+				+ exchangeJson(3, 2000, 5) + ","
+				+ exchangeJson(4, 2000, 5)
+				+ "]}";
+		// second page of size 2: searchPage asks for cursor + limit = 4
+		var query = new SearchQuery("", "", null, 0, false, 4, null);
+
+		var result = Exchanges.readSearchResult(new StringReader(json), query, 2);
+
+		assertEquals(2, result.exchanges.size());
+		assertEquals(3, result.exchanges.get(0).pos.x);
+		assertEquals(4, result.exchanges.get(1).pos.x);
+		assertEquals(4, result.nextCursor);
+	}
+
+	@Test
+	void keepsUnstockedWhenAllowed() throws Exception {
+		var json = "{\"exchanges\":[" + exchangeJson(1, 2000, 0) + "]}";
+		var query = new SearchQuery("", "", null, 0, true, 100, null);
+
+		var result = Exchanges.readSearchResult(new StringReader(json), query, 0);
+
+		assertEquals(1, result.exchanges.size());
+		assertEquals(0, result.exchanges.get(0).stock);
+	}
+}
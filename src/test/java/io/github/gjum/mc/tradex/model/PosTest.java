@@ -0,0 +1,37 @@
+package io.github.gjum.mc.tradex.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PosTest {
+	@Test
+	void dimensionIdsStartOverAfterReset() {
+		var pos = new Pos("SERVER_A", "world", 1, 64, 2);
+		var other = new Pos("SERVER_B", "world", 1, 64, 2);
+		assertNotEquals(pos.key(), other.key());
+
+		Pos.resetDimensionIds();
+		// ids are handed out again in order, cached keys are recomputed
+		assertEquals(Pos.key(0, 1, 64, 2), other.key());
+		assertEquals(Pos.key(1, 1, 64, 2), pos.key());
+		assertEquals(pos.key(), new Pos("SERVER_A", "world", 1, 64, 2).key());
+	}
+
+	@Test
+	void stillFoundInHashMapAfterReset() {
+		Pos.resetDimensionIds();
+		new Pos("OTHER", "world", 0, 0, 0).key();
+		var pos = new Pos("SERVER", "world", 1, 64, 2);
+		long keyBefore = pos.key();
+		var map = new HashMap<Pos, String>();
+		map.put(pos, "shop");
+
+		Pos.resetDimensionIds();
+		assertNotEquals(keyBefore, pos.key());
+		assertEquals("shop", map.get(pos));
+		assertEquals("shop", map.get(new Pos("SERVER", "world", 1, 64, 2)));
+	}
+}
@@ -0,0 +1,35 @@
+package io.github.gjum.mc.tradex.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleTest {
+	@Test
+	void detectsCompactedFromLore() {
+		var rule = new Rule(2, "Diamond");
+		assertFalse(rule.isCompacted());
+		assertEquals(2, rule.countDecompacted());
+
+		rule.lore.add("Compacted Item");
+		rule.invalidate();
+		assertTrue(rule.isCompacted());
+		assertEquals(128, rule.countDecompacted());
+
+		var pearls = new Rule(1, "Ender Pearl");
+		pearls.lore.add("Compacted Item");
+		assertEquals(8, pearls.compactMultiplier());
+	}
+
+	@Test
+	void specIsRecomputedAfterInvalidate() {
+		var rule = new Rule(1, "Blocks of Iron");
+		assertEquals("iron", SearchQuery.getSpecForRule(rule));
+
+		rule.requiredEnchants.put("Efficiency", 5);
+		rule.requiredEnchants.put("Unbreaking", 3);
+		rule.customName = "Gift";
+		rule.invalidate();
+		assertEquals("enchanted efficiency5unbreaking3 iron \"gift\"", rule.getSpec());
+	}
+}